@@ -0,0 +1,87 @@
+package util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of the kernels with the Vector API of the JDK
+ * (AVX2/AVX-512 on x86, NEON/SVE on ARM).
+ * <p>
+ * Loaded by Kernels at startup if the module jdk.incubator.vector
+ * is available (see Kernels).
+ */
+final class SimdKernels extends Kernels {
+
+    private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+
+    SimdKernels() {
+        // no gain without at least two lanes: fall back to scalar kernels
+        if (S.length() < 2) throw new UnsupportedOperationException();
+    }
+
+    @Override
+    String name() {
+        return "simd (" + S.vectorBitSize() + " bits)";
+    }
+
+    @Override
+    double dot(double[] a, int aOff, double[] b, int bOff, int len) {
+        DoubleVector acc = DoubleVector.zero(S);
+        int i = 0;
+        int bound = S.loopBound(len);
+        for (; i < bound; i += S.length()) {
+            DoubleVector va = DoubleVector.fromArray(S, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(S, b, bOff + i);
+            acc = va.fma(vb, acc);
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) s += a[aOff + i] * b[bOff + i];
+        return s;
+    }
+
+    @Override
+    double norm2(double[] a, int off, int len) {
+        return dot(a, off, a, off, len);
+    }
+
+    @Override
+    void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int len) {
+        DoubleVector va = DoubleVector.broadcast(S, alpha);
+        int i = 0;
+        int bound = S.loopBound(len);
+        for (; i < bound; i += S.length()) {
+            DoubleVector vx = DoubleVector.fromArray(S, x, xOff + i);
+            DoubleVector vy = DoubleVector.fromArray(S, y, yOff + i);
+            vx.fma(va, vy).intoArray(y, yOff + i);
+        }
+        for (; i < len; i++) y[yOff + i] += alpha * x[xOff + i];
+    }
+
+    @Override
+    void gemv(double[] a, int n, double[] x, double[] y, int from, int to) {
+        int bound = S.loopBound(n);
+        int i = from;
+        // two rows at once: each chunk of x is loaded once for both
+        for (; i + 1 < to; i += 2) {
+            int r0 = i * n, r1 = r0 + n;
+            DoubleVector acc0 = DoubleVector.zero(S);
+            DoubleVector acc1 = DoubleVector.zero(S);
+            int j = 0;
+            for (; j < bound; j += S.length()) {
+                DoubleVector vx = DoubleVector.fromArray(S, x, j);
+                acc0 = DoubleVector.fromArray(S, a, r0 + j).fma(vx, acc0);
+                acc1 = DoubleVector.fromArray(S, a, r1 + j).fma(vx, acc1);
+            }
+            double s0 = acc0.reduceLanes(VectorOperators.ADD);
+            double s1 = acc1.reduceLanes(VectorOperators.ADD);
+            for (; j < n; j++) {
+                s0 += a[r0 + j] * x[j];
+                s1 += a[r1 + j] * x[j];
+            }
+            y[i] = s0;
+            y[i + 1] = s1;
+        }
+        for (; i < to; i++) y[i] = dot(a, i * n, x, 0, n);
+    }
+}
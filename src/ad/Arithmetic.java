@@ -0,0 +1,62 @@
+package ad;
+
+/**
+ * Scalar arithmetic on which functions are written once (see Formula)
+ * and then evaluated, differentiated, etc., by the implementations.
+ * <p>
+ * Quantities are designated by int handles returned by the operations
+ * (no object is created per operation). A handle is only valid during
+ * the evaluation of the formula that created it.
+ */
+public interface Arithmetic {
+
+    /**
+     * @return the handle of the i-th variable.
+     */
+    int var(int i);
+
+    /**
+     * @return the handle of the constant c.
+     */
+    int cst(double c);
+
+    /**
+     * @return the value of the quantity a.
+     */
+    double value(int a);
+
+    int add(int a, int b);
+
+    int sub(int a, int b);
+
+    int mul(int a, int b);
+
+    int div(int a, int b);
+
+    int neg(int a);
+
+    /**
+     * @return c*a.
+     */
+    int scale(double c, int a);
+
+    /**
+     * @return a^2.
+     */
+    int sqr(int a);
+
+    int sqrt(int a);
+
+    /**
+     * @return a^p.
+     */
+    int pow(int a, double p);
+
+    int exp(int a);
+
+    int log(int a);
+
+    int sin(int a);
+
+    int cos(int a);
+}
@@ -0,0 +1,28 @@
+package ad;
+
+/**
+ * Real function of dim() variables, written with the operations
+ * of an Arithmetic.
+ * <p>
+ * Example (Rosenbrock):
+ * <pre>
+ *   public int eval(Arithmetic a) {
+ *       int x = a.var(0), y = a.var(1);
+ *       return a.add(a.sqr(a.sub(a.cst(1), x)), a.scale(100, a.sqr(a.sub(y, a.sqr(x)))));
+ *   }
+ * </pre>
+ */
+public interface Formula {
+
+    /**
+     * @return the number of variables
+     */
+    int dim();
+
+    /**
+     * Evaluate the function with the arithmetic a.
+     *
+     * @return the handle of the result
+     */
+    int eval(Arithmetic a);
+}
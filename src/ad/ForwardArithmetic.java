@@ -0,0 +1,181 @@
+package ad;
+
+import java.util.Arrays;
+
+import util.Vector;
+
+/**
+ * Forward-mode arithmetic: each quantity is a value together with its
+ * partial derivatives with respect to a chunk of k consecutive
+ * variables (dual numbers with k infinitesimal parts).
+ * <p>
+ * Values and derivatives are stored in arrays indexed by the handles,
+ * which are allocated once and only grow: an evaluation allocates
+ * nothing once the arrays are large enough. With k=0, only the values
+ * are computed.
+ */
+public class ForwardArithmetic implements Arithmetic {
+
+    private final int width; // maximal chunk size (stride of "der")
+
+    private Vector x;        // the point
+    private int first;       // first variable of the chunk
+    private int k;           // chunk size
+
+    private double[] val;    // val[h]: value of the quantity h
+    private double[] der;    // der[h*width+j]: derivative of h w.r.t. the variable first+j
+    private int size;        // number of handles in use
+
+    /**
+     * Build an arithmetic for chunks of at most "width" variables.
+     */
+    public ForwardArithmetic(int width) {
+        this.width = width;
+        this.val = new double[64];
+        this.der = new double[64 * width];
+    }
+
+    /**
+     * Start a new evaluation at x, with derivatives w.r.t.
+     * the variables first, ..., first+k-1.
+     */
+    public void reset(Vector x, int first, int k) {
+        assert (k <= width);
+        this.x = x;
+        this.first = first;
+        this.k = k;
+        this.size = 0;
+    }
+
+    /**
+     * Store in g[first..first+k-1] the derivatives of the quantity a.
+     */
+    public void derivatives(int a, Vector g) {
+        for (int j = 0; j < k; j++) {
+            g.set(first + j, der[a * width + j]);
+        }
+    }
+
+    @Override
+    public double value(int a) {
+        return val[a];
+    }
+
+    @Override
+    public int var(int i) {
+        int h = push(x.get(i));
+        int o = h * width;
+        for (int j = 0; j < k; j++) der[o + j] = 0;
+        if (i >= first && i < first + k) der[o + i - first] = 1;
+        return h;
+    }
+
+    @Override
+    public int cst(double c) {
+        int h = push(c);
+        int o = h * width;
+        for (int j = 0; j < k; j++) der[o + j] = 0;
+        return h;
+    }
+
+    @Override
+    public int add(int a, int b) {
+        return binary(a, b, val[a] + val[b], 1, 1);
+    }
+
+    @Override
+    public int sub(int a, int b) {
+        return binary(a, b, val[a] - val[b], 1, -1);
+    }
+
+    @Override
+    public int mul(int a, int b) {
+        return binary(a, b, val[a] * val[b], val[b], val[a]);
+    }
+
+    @Override
+    public int div(int a, int b) {
+        double v = val[a] / val[b];
+        return binary(a, b, v, 1 / val[b], -v / val[b]);
+    }
+
+    @Override
+    public int neg(int a) {
+        return unary(a, -val[a], -1);
+    }
+
+    @Override
+    public int scale(double c, int a) {
+        return unary(a, c * val[a], c);
+    }
+
+    @Override
+    public int sqr(int a) {
+        return unary(a, val[a] * val[a], 2 * val[a]);
+    }
+
+    @Override
+    public int sqrt(int a) {
+        double v = Math.sqrt(val[a]);
+        return unary(a, v, 0.5 / v);
+    }
+
+    @Override
+    public int pow(int a, double p) {
+        return unary(a, Math.pow(val[a], p), p * Math.pow(val[a], p - 1));
+    }
+
+    @Override
+    public int exp(int a) {
+        double v = Math.exp(val[a]);
+        return unary(a, v, v);
+    }
+
+    @Override
+    public int log(int a) {
+        return unary(a, Math.log(val[a]), 1 / val[a]);
+    }
+
+    @Override
+    public int sin(int a) {
+        return unary(a, Math.sin(val[a]), Math.cos(val[a]));
+    }
+
+    @Override
+    public int cos(int a) {
+        return unary(a, Math.cos(val[a]), -Math.sin(val[a]));
+    }
+
+    /*
+     * New quantity of value v and derivatives da*a'.
+     */
+    private int unary(int a, double v, double da) {
+        int h = push(v);
+        int o = h * width, oa = a * width;
+        for (int j = 0; j < k; j++) {
+            der[o + j] = da * der[oa + j];
+        }
+        return h;
+    }
+
+    /*
+     * New quantity of value v and derivatives da*a'+db*b'.
+     */
+    private int binary(int a, int b, double v, double da, double db) {
+        int h = push(v);
+        int o = h * width, oa = a * width, ob = b * width;
+        for (int j = 0; j < k; j++) {
+            der[o + j] = da * der[oa + j] + db * der[ob + j];
+        }
+        return h;
+    }
+
+    private int push(double v) {
+        if (size == val.length) {
+            val = Arrays.copyOf(val, 2 * size);
+            der = Arrays.copyOf(der, 2 * size * width);
+        }
+        val[size] = v;
+        return size++;
+    }
+}
@@ -0,0 +1,82 @@
+package ad;
+
+import func.RealFunc;
+import util.Vector;
+
+/**
+ * Real function given by a formula, differentiated in forward mode.
+ * <p>
+ * The gradient is obtained by evaluating the formula once per chunk of
+ * "chunk" variables, each pass computing the partial derivatives with
+ * respect to all the variables of the chunk (see ForwardArithmetic).
+ * The cost of the gradient is therefore about n/chunk evaluations of
+ * the formula, each (1+chunk) times as expensive as a plain evaluation.
+ * The derivatives are exact (up to rounding).
+ * <p>
+ * The workspaces are shared by all the calls: an instance must
+ * not be used by several threads at the same time.
+ */
+public class ForwardDiff implements RealFunc {
+
+    /**
+     * Default number of derivatives computed per pass.
+     */
+    public final static int DEFAULT_CHUNK = 8;
+
+    private final Formula formula;
+    private final int chunk;
+    private final ForwardArithmetic arith;
+
+    /**
+     * Build the function with the default chunk size.
+     */
+    public ForwardDiff(Formula formula) {
+        this(formula, DEFAULT_CHUNK);
+    }
+
+    /**
+     * Build the function.
+     *
+     * @param chunk number of derivatives computed per pass
+     */
+    public ForwardDiff(Formula formula, int chunk) {
+        assert (chunk > 0);
+        this.formula = formula;
+        this.chunk = Math.min(chunk, formula.dim());
+        this.arith = new ForwardArithmetic(this.chunk);
+    }
+
+    @Override
+    public int dim() {
+        return formula.dim();
+    }
+
+    @Override
+    public double eval(Vector x) {
+        arith.reset(x, 0, 0);
+        return arith.value(formula.eval(arith));
+    }
+
+    @Override
+    public Vector grad(Vector x) {
+        Vector g = new Vector(dim());
+        evalWithGrad(x, g);
+        return g;
+    }
+
+    /**
+     * The value is obtained with the first chunk of derivatives.
+     */
+    @Override
+    public double evalWithGrad(Vector x, Vector g) {
+        int n = dim();
+        double fx = 0;
+        for (int first = 0; first < n; first += chunk) {
+            arith.reset(x, first, Math.min(chunk, n - first));
+            int h = formula.eval(arith);
+            if (first == 0) fx = arith.value(h);
+            arith.derivatives(h, g);
+        }
+        return fx;
+    }
+}
@@ -0,0 +1,281 @@
+package ad;
+
+import java.util.Arrays;
+
+import util.Vector;
+
+/**
+ * Reverse-mode arithmetic: the operations are recorded on a tape,
+ * together with their values and local partial derivatives, and the
+ * gradient of a quantity with respect to all the variables is then
+ * obtained by one backward sweep of the tape ("adjoints").
+ * <p>
+ * The tape is made of primitive arrays indexed by the handles, which
+ * only grow. It can also be replayed at another point ("forward")
+ * without evaluating the formula again, provided that the sequence of
+ * operations does not depend on the point (static computation graph).
+ */
+public class ReverseArithmetic implements Arithmetic {
+
+    // operation codes
+    private final static byte VAR = 0, CST = 1, ADD = 2, SUB = 3, MUL = 4, DIV = 5,
+            NEG = 6, SCALE = 7, SQR = 8, SQRT = 9, POW = 10, EXP = 11, LOG = 12, SIN = 13, COS = 14;
+
+    private Vector x;    // the point
+
+    private byte[] op;
+    private int[] arg_a, arg_b; // operands (index of the variable for VAR)
+    private double[] param;     // constant of CST, SCALE and POW
+    private double[] val;       // value
+    private double[] da, db;    // partial derivatives w.r.t. the operands
+    private double[] adj;       // adjoints (backward sweep)
+    private int size;           // length of the tape
+
+    public ReverseArithmetic() {
+        int capacity = 64;
+        op = new byte[capacity];
+        arg_a = new int[capacity];
+        arg_b = new int[capacity];
+        param = new double[capacity];
+        val = new double[capacity];
+        da = new double[capacity];
+        db = new double[capacity];
+        adj = new double[capacity];
+    }
+
+    /**
+     * Clear the tape and start a new recording at x.
+     */
+    public void reset(Vector x) {
+        this.x = x;
+        this.size = 0;
+    }
+
+    /**
+     * @return the number of operations on the tape.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replay the tape at x: all the values and partial derivatives
+     * are computed again, without the formula.
+     */
+    public void forward(Vector x) {
+        this.x = x;
+        for (int h = 0; h < size; h++) {
+            apply(h);
+        }
+    }
+
+    /**
+     * Backward sweep: store in g the gradient of the quantity
+     * a with respect to all the variables.
+     */
+    public void gradient(int a, Vector g) {
+        for (int i = 0; i < g.size(); i++) g.set(i, 0);
+        Arrays.fill(adj, 0, a + 1, 0);
+        adj[a] = 1;
+
+        for (int h = a; h >= 0; h--) {
+            double w = adj[h];
+            if (w == 0) continue;
+            switch (op[h]) {
+                case VAR:
+                    g.set(arg_a[h], g.get(arg_a[h]) + w);
+                    break;
+                case CST:
+                    break;
+                case ADD:
+                case SUB:
+                case MUL:
+                case DIV:
+                    adj[arg_a[h]] += da[h] * w;
+                    adj[arg_b[h]] += db[h] * w;
+                    break;
+                default: // unary
+                    adj[arg_a[h]] += da[h] * w;
+            }
+        }
+    }
+
+    @Override
+    public double value(int a) {
+        return val[a];
+    }
+
+    @Override
+    public int var(int i) {
+        return record(VAR, i, 0, 0);
+    }
+
+    @Override
+    public int cst(double c) {
+        return record(CST, 0, 0, c);
+    }
+
+    @Override
+    public int add(int a, int b) {
+        return record(ADD, a, b, 0);
+    }
+
+    @Override
+    public int sub(int a, int b) {
+        return record(SUB, a, b, 0);
+    }
+
+    @Override
+    public int mul(int a, int b) {
+        return record(MUL, a, b, 0);
+    }
+
+    @Override
+    public int div(int a, int b) {
+        return record(DIV, a, b, 0);
+    }
+
+    @Override
+    public int neg(int a) {
+        return record(NEG, a, 0, 0);
+    }
+
+    @Override
+    public int scale(double c, int a) {
+        return record(SCALE, a, 0, c);
+    }
+
+    @Override
+    public int sqr(int a) {
+        return record(SQR, a, 0, 0);
+    }
+
+    @Override
+    public int sqrt(int a) {
+        return record(SQRT, a, 0, 0);
+    }
+
+    @Override
+    public int pow(int a, double p) {
+        return record(POW, a, 0, p);
+    }
+
+    @Override
+    public int exp(int a) {
+        return record(EXP, a, 0, 0);
+    }
+
+    @Override
+    public int log(int a) {
+        return record(LOG, a, 0, 0);
+    }
+
+    @Override
+    public int sin(int a) {
+        return record(SIN, a, 0, 0);
+    }
+
+    @Override
+    public int cos(int a) {
+        return record(COS, a, 0, 0);
+    }
+
+    private int record(byte code, int a, int b, double p) {
+        if (size == op.length) grow();
+        int h = size++;
+        op[h] = code;
+        arg_a[h] = a;
+        arg_b[h] = b;
+        param[h] = p;
+        apply(h);
+        return h;
+    }
+
+    /*
+     * Compute the value and the partial derivatives of the operation h.
+     */
+    private void apply(int h) {
+        if (op[h] == VAR) {
+            val[h] = x.get(arg_a[h]);
+            return;
+        }
+        if (op[h] == CST) {
+            val[h] = param[h];
+            return;
+        }
+        double u = val[arg_a[h]];
+        double v;
+        switch (op[h]) {
+            case ADD:
+                val[h] = u + val[arg_b[h]];
+                da[h] = 1;
+                db[h] = 1;
+                break;
+            case SUB:
+                val[h] = u - val[arg_b[h]];
+                da[h] = 1;
+                db[h] = -1;
+                break;
+            case MUL:
+                v = val[arg_b[h]];
+                val[h] = u * v;
+                da[h] = v;
+                db[h] = u;
+                break;
+            case DIV:
+                v = val[arg_b[h]];
+                val[h] = u / v;
+                da[h] = 1 / v;
+                db[h] = -val[h] / v;
+                break;
+            case NEG:
+                val[h] = -u;
+                da[h] = -1;
+                break;
+            case SCALE:
+                val[h] = param[h] * u;
+                da[h] = param[h];
+                break;
+            case SQR:
+                val[h] = u * u;
+                da[h] = 2 * u;
+                break;
+            case SQRT:
+                val[h] = Math.sqrt(u);
+                da[h] = 0.5 / val[h];
+                break;
+            case POW:
+                val[h] = Math.pow(u, param[h]);
+                da[h] = param[h] * Math.pow(u, param[h] - 1);
+                break;
+            case EXP:
+                val[h] = Math.exp(u);
+                da[h] = val[h];
+                break;
+            case LOG:
+                val[h] = Math.log(u);
+                da[h] = 1 / u;
+                break;
+            case SIN:
+                val[h] = Math.sin(u);
+                da[h] = Math.cos(u);
+                break;
+            case COS:
+                val[h] = Math.cos(u);
+                da[h] = -Math.sin(u);
+                break;
+        }
+    }
+
+    private void grow() {
+        int capacity = 2 * op.length;
+        op = Arrays.copyOf(op, capacity);
+        arg_a = Arrays.copyOf(arg_a, capacity);
+        arg_b = Arrays.copyOf(arg_b, capacity);
+        param = Arrays.copyOf(param, capacity);
+        val = Arrays.copyOf(val, capacity);
+        da = Arrays.copyOf(da, capacity);
+        db = Arrays.copyOf(db, capacity);
+        adj = Arrays.copyOf(adj, capacity);
+    }
+}
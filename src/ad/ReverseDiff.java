@@ -0,0 +1,78 @@
+package ad;
+
+import func.RealFunc;
+import util.Vector;
+
+/**
+ * Real function given by a formula, differentiated in reverse mode.
+ * <p>
+ * The evaluation of the formula is recorded on a tape (see
+ * ReverseArithmetic) and the gradient is obtained by one backward sweep,
+ * so that its cost is a small multiple of the cost of one evaluation,
+ * whatever the number of variables.
+ * <p>
+ * If the computation graph is static (the sequence of operations of the
+ * formula does not depend on the point, i.e., no test on the values),
+ * the tape is recorded only once and then replayed, which saves the
+ * evaluation of the formula itself.
+ * <p>
+ * The tape is shared by all the calls: an instance must
+ * not be used by several threads at the same time.
+ */
+public class ReverseDiff implements RealFunc {
+
+    private final Formula formula;
+    private final boolean static_graph;
+    private final ReverseArithmetic tape;
+    private int out;          // handle of the result
+    private boolean recorded; // true once the tape is recorded (static graph)
+
+    /**
+     * Build the function, the formula being evaluated again at each point.
+     */
+    public ReverseDiff(Formula formula) {
+        this(formula, false);
+    }
+
+    /**
+     * Build the function.
+     *
+     * @param static_graph true if the tape can be recorded once and replayed
+     */
+    public ReverseDiff(Formula formula, boolean static_graph) {
+        this.formula = formula;
+        this.static_graph = static_graph;
+        this.tape = new ReverseArithmetic();
+    }
+
+    @Override
+    public int dim() {
+        return formula.dim();
+    }
+
+    @Override
+    public double eval(Vector x) {
+        if (static_graph && recorded) {
+            tape.forward(x);
+        } else {
+            tape.reset(x);
+            out = formula.eval(tape);
+            recorded = true;
+        }
+        return tape.value(out);
+    }
+
+    @Override
+    public Vector grad(Vector x) {
+        Vector g = new Vector(dim());
+        evalWithGrad(x, g);
+        return g;
+    }
+
+    @Override
+    public double evalWithGrad(Vector x, Vector g) {
+        double fx = eval(x);
+        tape.gradient(out, g);
+        return fx;
+    }
+}
@@ -0,0 +1,163 @@
+package func;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import util.Vector;
+
+/**
+ * Function whose values and gradients are memorized.
+ * <p>
+ * The last points where the decorated function f has been evaluated are
+ * kept, with the value and/or the gradient of f computed there, so that
+ * f is never evaluated twice at the same point (as long as this point is
+ * still in the cache). Points are compared exactly (see Vector.equals)
+ * and the least recently used one is evicted when the cache is full.
+ * <p>
+ * Worth it when f is expensive: a lookup costs O(n) (hash + comparison)
+ * and a miss a copy of the point.
+ */
+public class CachedFunc implements RealFunc {
+
+    /**
+     * Default number of points kept.
+     */
+    public final static int DEFAULT_CAPACITY = 16;
+
+    private static class Entry {
+        double value;
+        boolean has_value;
+        Vector grad; // null if unknown
+    }
+
+    private final RealFunc f;
+    private final LinkedHashMap<Vector, Entry> cache;
+
+    private long hits;   // calls answered by the cache
+    private long misses; // calls that needed f
+
+    /**
+     * Build the function with the default capacity.
+     */
+    public CachedFunc(RealFunc f) {
+        this(f, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Build the function.
+     *
+     * @param capacity the maximal number of points kept
+     */
+    public CachedFunc(RealFunc f, int capacity) {
+        assert (capacity > 0);
+        this.f = f;
+        this.cache = new LinkedHashMap<Vector, Entry>(2 * capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Vector, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public int dim() {
+        return f.dim();
+    }
+
+    @Override
+    public double eval(Vector x) {
+        synchronized (this) {
+            Entry e = cache.get(x);
+            if (e != null && e.has_value) {
+                hits++;
+                return e.value;
+            }
+            misses++;
+        }
+        double fx = f.eval(x);
+        store(x, fx, null);
+        return fx;
+    }
+
+    @Override
+    public Vector grad(Vector x) {
+        synchronized (this) {
+            Entry e = cache.get(x);
+            if (e != null && e.grad != null) {
+                hits++;
+                return new Vector(e.grad);
+            }
+            misses++;
+        }
+        Vector g = f.grad(x);
+        store(x, Double.NaN, new Vector(g));
+        return g;
+    }
+
+    /**
+     * Only the missing part (value or gradient) is computed.
+     */
+    @Override
+    public double evalWithGrad(Vector x, Vector g) {
+        boolean has_value, has_grad;
+        double fx;
+        synchronized (this) {
+            Entry e = cache.get(x);
+            has_value = e != null && e.has_value;
+            has_grad = e != null && e.grad != null;
+            fx = has_value ? e.value : Double.NaN;
+            if (has_grad) g.set(e.grad);
+            if (has_value && has_grad) {
+                hits++;
+                return fx;
+            }
+            misses++;
+        }
+        if (has_value) {
+            g.set(f.grad(x));
+        } else if (has_grad) {
+            fx = f.eval(x);
+        } else {
+            fx = f.evalWithGrad(x, g);
+        }
+        store(x, fx, has_grad ? null : new Vector(g));
+        return fx;
+    }
+
+    /**
+     * @return the number of calls answered by the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of calls that needed an evaluation of f.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Remove all the points (the counters are kept).
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /*
+     * Record the value (if not NaN) and the gradient (if not null) at x.
+     */
+    private synchronized void store(Vector x, double fx, Vector g) {
+        Entry e = cache.get(x);
+        if (e == null) {
+            e = new Entry();
+            cache.put(new Vector(x), e);
+        }
+        if (!Double.isNaN(fx)) {
+            e.value = fx;
+            e.has_value = true;
+        }
+        if (g != null) e.grad = g;
+    }
+}
@@ -0,0 +1,150 @@
+package func;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import util.Vector;
+
+/**
+ * Function counting (and optionally timing) the calls to the decorated
+ * function f.
+ * <p>
+ * The values, the gradients and the fused calls (evalWithGrad) are
+ * counted and timed separately. getEvaluations (resp. getGradients) is
+ * the total number of values (resp. gradients) computed, fused calls
+ * included. The counters support concurrent calls (e.g., by FiniteDiff or
+ * MultiStart). Without timing, the overhead is one atomic increment per
+ * call; with timing, two calls to System.nanoTime are added.
+ * <p>
+ * The counters can drive an algorithm, e.g.:
+ * <pre>
+ *   algo.setEvaluationCounter(cf::getEvaluations);
+ *   algo.addStopCriterion(StopCriterion.evaluations(cf::getEvaluations, 1000));
+ * </pre>
+ *
+ * @see CountedTwiceDiffFunc
+ */
+public class CountedFunc implements RealFunc {
+
+    private final RealFunc f;
+    protected final boolean timed;
+
+    private final LongAdder values = new LongAdder();     // calls to eval
+    private final LongAdder gradients = new LongAdder();  // calls to grad
+    private final LongAdder fused = new LongAdder();      // calls to evalWithGrad
+    private final LongAdder eval_time = new LongAdder();  // ns
+    private final LongAdder grad_time = new LongAdder();  // ns
+    private final LongAdder fused_time = new LongAdder(); // ns
+
+    /**
+     * Count the calls to f (without timing).
+     */
+    public CountedFunc(RealFunc f) {
+        this(f, false);
+    }
+
+    /**
+     * Build the function.
+     *
+     * @param timed true to also measure the time spent in f
+     */
+    public CountedFunc(RealFunc f, boolean timed) {
+        this.f = f;
+        this.timed = timed;
+    }
+
+    @Override
+    public int dim() {
+        return f.dim();
+    }
+
+    @Override
+    public double eval(Vector x) {
+        values.increment();
+        if (!timed) return f.eval(x);
+        long t = System.nanoTime();
+        double fx = f.eval(x);
+        eval_time.add(System.nanoTime() - t);
+        return fx;
+    }
+
+    @Override
+    public Vector grad(Vector x) {
+        gradients.increment();
+        if (!timed) return f.grad(x);
+        long t = System.nanoTime();
+        Vector g = f.grad(x);
+        grad_time.add(System.nanoTime() - t);
+        return g;
+    }
+
+    @Override
+    public double evalWithGrad(Vector x, Vector g) {
+        fused.increment();
+        if (!timed) return f.evalWithGrad(x, g);
+        long t = System.nanoTime();
+        double fx = f.evalWithGrad(x, g);
+        fused_time.add(System.nanoTime() - t);
+        return fx;
+    }
+
+    /**
+     * @return the number of values of f computed (fused calls included).
+     */
+    public long getEvaluations() {
+        return values.sum() + fused.sum();
+    }
+
+    /**
+     * @return the number of gradients of f computed (fused calls included).
+     */
+    public long getGradients() {
+        return gradients.sum() + fused.sum();
+    }
+
+    /**
+     * @return the number of fused calls (evalWithGrad).
+     */
+    public long getFusedEvaluations() {
+        return fused.sum();
+    }
+
+    /**
+     * @return the time spent in eval (in ns, 0 without timing).
+     */
+    public long getEvalTime() {
+        return eval_time.sum();
+    }
+
+    /**
+     * @return the time spent in grad (in ns, 0 without timing).
+     */
+    public long getGradTime() {
+        return grad_time.sum();
+    }
+
+    /**
+     * @return the time spent in evalWithGrad (in ns, 0 without timing).
+     */
+    public long getFusedTime() {
+        return fused_time.sum();
+    }
+
+    /**
+     * Reset the counters.
+     */
+    public void reset() {
+        values.reset();
+        gradients.reset();
+        fused.reset();
+        eval_time.reset();
+        grad_time.reset();
+        fused_time.reset();
+    }
+
+    public String toString() {
+        String s = values.sum() + " values, " + gradients.sum() + " gradients, " + fused.sum() + " fused";
+        if (timed) s += " (" + eval_time.sum() / 1000000 + " ms + " + grad_time.sum() / 1000000
+            + " ms + " + fused_time.sum() / 1000000 + " ms)";
+        return s;
+    }
+}
@@ -0,0 +1,99 @@
+package func;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import util.RealMatrix;
+import util.Vector;
+
+/**
+ * CountedFunc for a twice differentiable function: the Hessians and the
+ * Hessian-vector products are also counted (and optionally timed), so
+ * that e.g. Newton's method can be instrumented.
+ */
+public class CountedTwiceDiffFunc extends CountedFunc implements TwiceDiffFunc {
+
+    private final TwiceDiffFunc f;
+
+    private final LongAdder hessians = new LongAdder();
+    private final LongAdder hess_vecs = new LongAdder();
+    private final LongAdder hessian_time = new LongAdder();  // ns
+    private final LongAdder hess_vec_time = new LongAdder(); // ns
+
+    /**
+     * Count the calls to f (without timing).
+     */
+    public CountedTwiceDiffFunc(TwiceDiffFunc f) {
+        this(f, false);
+    }
+
+    /**
+     * Build the function.
+     *
+     * @param timed true to also measure the time spent in f
+     */
+    public CountedTwiceDiffFunc(TwiceDiffFunc f, boolean timed) {
+        super(f, timed);
+        this.f = f;
+    }
+
+    @Override
+    public RealMatrix hessian(Vector x) {
+        hessians.increment();
+        if (!timed) return f.hessian(x);
+        long t = System.nanoTime();
+        RealMatrix H = f.hessian(x);
+        hessian_time.add(System.nanoTime() - t);
+        return H;
+    }
+
+    @Override
+    public Vector hessVec(Vector x, Vector v, Vector hv) {
+        hess_vecs.increment();
+        if (!timed) return f.hessVec(x, v, hv);
+        long t = System.nanoTime();
+        f.hessVec(x, v, hv);
+        hess_vec_time.add(System.nanoTime() - t);
+        return hv;
+    }
+
+    /**
+     * @return the number of Hessians computed.
+     */
+    public long getHessians() {
+        return hessians.sum();
+    }
+
+    /**
+     * @return the number of Hessian-vector products computed.
+     */
+    public long getHessVecs() {
+        return hess_vecs.sum();
+    }
+
+    /**
+     * @return the time spent in hessian (in ns, 0 without timing).
+     */
+    public long getHessianTime() {
+        return hessian_time.sum();
+    }
+
+    /**
+     * @return the time spent in hessVec (in ns, 0 without timing).
+     */
+    public long getHessVecTime() {
+        return hess_vec_time.sum();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        hessians.reset();
+        hess_vecs.reset();
+        hessian_time.reset();
+        hess_vec_time.reset();
+    }
+
+    public String toString() {
+        return super.toString() + ", " + hessians.sum() + " Hessians, " + hess_vecs.sum() + " Hessian-vector products";
+    }
+}
@@ -0,0 +1,157 @@
+package func;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import util.Vector;
+
+/**
+ * Gradient of a function by finite differences.
+ * <p>
+ * Only the values of the decorated function f are used (its own
+ * gradient is ignored), which suits black-box objectives. The partial
+ * derivative w.r.t. x_i is
+ * <pre>
+ *   (f(x+h_i e_i) - f(x)) / h_i                 (forward)
+ *   (f(x+h_i e_i) - f(x-h_i e_i)) / (2 h_i)     (central)
+ * </pre>
+ * with a step proportional to max(1,|x_i|): sqrt(eps) for forward
+ * differences, eps^(1/3) for central ones (eps being the machine
+ * precision), which balances truncation and rounding errors. Central
+ * differences are more accurate but need 2n evaluations instead of n+1
+ * for a gradient (2n+1 with evalWithGrad, which also evaluates f(x)).
+ * <p>
+ * The perturbed points are evaluated in parallel on an executor, so f
+ * must support concurrent calls to eval. The common fork-join pool is
+ * the default, which suits CPU-bound functions; for I/O-bound functions
+ * (e.g., external simulations), an executor with more threads than cores
+ * (e.g., Executors.newCachedThreadPool()) should be given instead.
+ */
+public class FiniteDiff implements RealFunc {
+
+    private final static double EPS = Math.ulp(1.0);
+    private final static double FORWARD_STEP = Math.sqrt(EPS);
+    private final static double CENTRAL_STEP = Math.cbrt(EPS);
+
+    private final RealFunc f;
+    private final boolean central;
+    private final ExecutorService executor;
+
+    /**
+     * Forward differences, in the common fork-join pool.
+     */
+    public FiniteDiff(RealFunc f) {
+        this(f, false);
+    }
+
+    /**
+     * Forward or central differences, in the common fork-join pool.
+     */
+    public FiniteDiff(RealFunc f, boolean central) {
+        this(f, central, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build the function.
+     *
+     * @param f        the function (only its values are used)
+     * @param central  true for central differences, false for forward ones
+     * @param executor where the perturbed points are evaluated
+     */
+    public FiniteDiff(RealFunc f, boolean central, ExecutorService executor) {
+        this.f = f;
+        this.central = central;
+        this.executor = executor;
+    }
+
+    @Override
+    public int dim() {
+        return f.dim();
+    }
+
+    @Override
+    public double eval(Vector x) {
+        return f.eval(x);
+    }
+
+    @Override
+    public Vector grad(Vector x) {
+        Vector g = new Vector(dim());
+        compute(x, g, false);
+        return g;
+    }
+
+    /**
+     * f(x) is evaluated in parallel with the perturbed points
+     * (and reused by forward differences).
+     */
+    @Override
+    public double evalWithGrad(Vector x, Vector g) {
+        return compute(x, g, true);
+    }
+
+    /*
+     * Gradient at x in g, and f(x) if "with_value" or needed by forward
+     * differences (NaN otherwise). If an evaluation fails, the pending
+     * ones are cancelled before the exception is rethrown.
+     */
+    private double compute(Vector x, Vector g, boolean with_value) {
+        int n = dim();
+        Future<?>[] tasks = new Future<?>[central ? 2 * n + 1 : n + 1];
+        int m = 0;
+        Future<?> fx = with_value || !central ? (tasks[m++] = executor.submit(() -> f.eval(x))) : null;
+
+        Future<?>[] plus = new Future<?>[n];
+        Future<?>[] minus = central ? new Future<?>[n] : null;
+        double[] h = new double[n];
+
+        try {
+            for (int i = 0; i < n; i++) {
+                double xi = x.get(i);
+                double step = (central ? CENTRAL_STEP : FORWARD_STEP) * Math.max(1, Math.abs(xi));
+                h[i] = (xi + step) - xi; // exactly representable
+                plus[i] = tasks[m++] = executor.submit(perturbed(x, i, xi + h[i]));
+                if (central) minus[i] = tasks[m++] = executor.submit(perturbed(x, i, xi - h[i]));
+            }
+
+            double f0 = fx == null ? Double.NaN : get(fx);
+            for (int i = 0; i < n; i++) {
+                if (central) {
+                    g.set(i, (get(plus[i]) - get(minus[i])) / (2 * h[i]));
+                } else {
+                    g.set(i, (get(plus[i]) - f0) / h[i]);
+                }
+            }
+            return f0;
+        } catch (RuntimeException e) {
+            for (int k = 0; k < m; k++) tasks[k].cancel(true);
+            throw e;
+        }
+    }
+
+    /*
+     * Evaluation of f at x with x_i replaced by xi.
+     */
+    private Callable<Double> perturbed(Vector x, int i, double xi) {
+        return () -> {
+            Vector y = new Vector(x);
+            y.set(i, xi);
+            return f.eval(y);
+        };
+    }
+
+    private static double get(Future<?> future) {
+        try {
+            return (Double) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted during the finite differences", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -1,29 +1,66 @@
 package func;
 
-import util.Matrix;
+import util.RealMatrix;
 import util.Vector;
 
-public class QuadraForm implements RealFunc {
-    public Matrix Q;
+/**
+ * Quadratic function x -> 1/2 x^T Q x - b^T x.
+ * <p>
+ * Q can be dense (Matrix) or sparse (SparseMatrix); evaluating the
+ * function or its gradient costs one matrix-vector product.
+ */
+public class QuadraForm implements TwiceDiffFunc {
+    public RealMatrix Q;
     private Vector b;
 
-    public QuadraForm(Matrix Q) {
+    public QuadraForm(RealMatrix Q) {
         this(Q, new Vector(Q.nb_cols()));
     }
 
-    public QuadraForm(Matrix Q, Vector b) {
+    public QuadraForm(RealMatrix Q, Vector b) {
         this.Q = Q;
         this.b = b;
     }
 
+    /**
+     * @return the vector b (not copied).
+     */
+    public Vector getB() {
+        return b;
+    }
+
     @Override
     public double eval(Vector x) {
-        return x.leftmul(0.5).scalar(Q.mult(x)) - b.scalar(x);
+        return 0.5 * Q.bilinear(x, x) - b.dot(x);
     }
 
     @Override
     public Vector grad(Vector x) {
-        return Q.mult(x).sub(b);
+        return Q.mult(x).axpy(-1, b);
+    }
+
+    /**
+     * Only one matrix-vector product (Qx) for both the value and the gradient.
+     */
+    @Override
+    public double evalWithGrad(Vector x, Vector g) {
+        Q.multInto(x, g);
+        double fx = 0.5 * x.dot(g) - b.dot(x);
+        g.axpy(-1, b);
+        return fx;
+    }
+
+    /**
+     * The Hessian is Q (whatever x).
+     */
+    @Override
+    public RealMatrix hessian(Vector x) {
+        return Q;
+    }
+
+    @Override
+    public Vector hessVec(Vector x, Vector v, Vector hv) {
+        return Q.multInto(v, hv);
     }
 
     @Override
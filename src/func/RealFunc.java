@@ -25,4 +25,18 @@ public interface RealFunc {
 	 */
 	public Vector grad(Vector x);
 
+	/**
+	 * Compute f(x) and the gradient of f at x together.
+	 * <p>
+	 * The gradient is stored in g (which must be of size dim()
+	 * and different from x). Functions that share work between
+	 * the value and the gradient should override this method.
+	 *
+	 * @return f(x).
+	 */
+	public default double evalWithGrad(Vector x, Vector g) {
+		g.set(grad(x));
+		return eval(x);
+	}
+
 }
@@ -1,10 +1,12 @@
 package func;
 
+import util.Matrix;
+import util.RealMatrix;
 import util.Vector;
 
 import static java.lang.Math.pow;
 
-public class Rosenbrock implements RealFunc {
+public class Rosenbrock implements TwiceDiffFunc {
 
 
     public double eval(Vector v) {
@@ -21,6 +23,37 @@ public class Rosenbrock implements RealFunc {
         });
     }
 
+    @Override
+    public double evalWithGrad(Vector v, Vector g) {
+        double x = v.get(0);
+        double y = v.get(1);
+        double r = y - x * x;
+        g.set(0, -2 * (1 - x) - 400 * x * r);
+        g.set(1, 200 * r);
+        return (1 - x) * (1 - x) + 100 * r * r;
+    }
+
+    @Override
+    public RealMatrix hessian(Vector v) {
+        double x = v.get(0);
+        double y = v.get(1);
+        return new Matrix(new double[][]{
+            {1200 * x * x - 400 * y + 2, -400 * x},
+            {-400 * x, 200}
+        });
+    }
+
+    @Override
+    public Vector hessVec(Vector v, Vector u, Vector hu) {
+        double x = v.get(0);
+        double y = v.get(1);
+        double u0 = u.get(0);
+        double u1 = u.get(1);
+        hu.set(0, (1200 * x * x - 400 * y + 2) * u0 - 400 * x * u1);
+        hu.set(1, -400 * x * u0 + 200 * u1);
+        return hu;
+    }
+
     @Override
     public int dim() {
         return 2;
@@ -0,0 +1,34 @@
+package func;
+import util.RealMatrix;
+import util.Vector;
+
+/**
+ * 
+ * Interface for real functions with second-order information.
+ * <p>
+ * Newton-like methods need either the Hessian matrix (to
+ * factorize it) or only products of the Hessian with vectors
+ * (Hessian-free methods, for large dimensions).
+ *
+ */
+public interface TwiceDiffFunc extends RealFunc {
+
+	/**
+	 * @return the Hessian matrix of f at x (symmetric).
+	 */
+	public RealMatrix hessian(Vector x);
+
+	/**
+	 * Compute the product of the Hessian matrix of f at x with v.
+	 * <p>
+	 * The result is stored in hv (which must be of size dim() and
+	 * different from x and v). Functions that can compute this product
+	 * without building the Hessian should override this method.
+	 *
+	 * @return hv.
+	 */
+	public default Vector hessVec(Vector x, Vector v, Vector hv) {
+		return hessian(x).multInto(v, hv);
+	}
+
+}
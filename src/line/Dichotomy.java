@@ -35,7 +35,7 @@ public class Dichotomy extends LineSearch {
         double alpha = iter_vec.get(0);
         if (alpha < MIN_STEP) {
             throw new EndOfIteration();
-        } else if (f.eval(x0.add(d.leftmul(alpha))) < f.eval(x0)) {
+        } else if (eval(x0, d, alpha) < value0()) {
             throw new EndOfIteration();
         } else {
             alpha = alpha / DICHO_RATIO;
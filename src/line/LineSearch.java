@@ -3,12 +3,19 @@ package line;
 import util.Vector;
 import func.RealFunc;
 import solve.Algorithm;
+import solve.Metrics;
 
 /**
  * Line search algorithm.
- * 
+ *
  * Minimizes f(x+alpha*d).
- * 
+ * <p>
+ * The outer algorithm usually knows the value and the gradient of f at x
+ * already: they can be given to "start" (or "search") so that they are not
+ * computed again. Conversely, the value and the gradient at the point
+ * finally reached are often known by the line search: they can be
+ * retrieved with "resultWithGrad".
+ *
  * @author Gilles Chabert
  */
 public abstract class LineSearch extends Algorithm {
@@ -17,60 +24,268 @@ public abstract class LineSearch extends Algorithm {
 	 * The function to minimize.
 	 */
 	protected RealFunc f;
-	
+
 	/**
 	 * Point of the current search (given by "start")
 	 */
 	protected Vector x0;
-	
+
 	/**
 	 * Direction of the current search (given by "start")
 	 */
 	protected Vector d;
-	
+
+	/**
+	 * Workspace for the point x+alpha*d
+	 */
+	private Vector point;
+
+	/**
+	 * Workspace for the gradient of f at x+alpha*d
+	 */
+	private Vector grad;
+
+	/**
+	 * Derivative g'(alpha) computed by the last call to evalWithDerivative.
+	 */
+	protected double last_slope;
+
+	/**
+	 * Value (valid if "known_value0"), gradient and slope
+	 * (valid if "known_grad0") at alpha=0
+	 */
+	private boolean known_value0, known_grad0;
+	private double f0;
+	private Vector grad0;
+	private double slope0;
+
+	/**
+	 * Last point x+alpha*d where f and/or its gradient have been
+	 * computed (the gradient is in "grad").
+	 */
+	private Vector cache_x, cache_d;
+	private double cache_alpha;
+	private double cache_value;
+	private boolean cache_has_value, cache_has_grad;
+
 	/**
 	 * Build a new line search algorithm
 	 * for the function f
 	 */
 	public LineSearch(RealFunc f) {
 		this.f = f;
+		this.point = new Vector(f.dim());
+		this.grad = new Vector(f.dim());
+		this.grad0 = new Vector(f.dim());
 	}
-	
+
 	/**
 	 * Start a new search
 	 */
 	public void start(Vector x, Vector d) {
 		this.x0=x;
 		this.d=d;
+		this.known_value0=false;
+		this.known_grad0=false;
+		this.cache_x=null;
+		if (getMetrics()!=null) getMetrics().lineSearch();
 		double alpha0 = 0;
 		super.start(new Vector(new double[]{alpha0}));
 	}
-	
-	
+
+	/**
+	 * Start a new search, where the value fx and the gradient gx
+	 * of f at x are already known.
+	 */
+	public void start(Vector x, Vector d, double fx, Vector gx) {
+		start(x,d);
+		this.f0=fx;
+		this.grad0.set(gx);
+		this.slope0=gx.dot(d);
+		this.known_value0=true;
+		this.known_grad0=true;
+	}
+
+
 	/**
 	 * Start and run the iteration until fixpoint.
 	 * @return the best alpha
 	 */
 	public double search(Vector x, Vector d) {
 		start(x,d);
-		return search().get(0);
+		search(null);
+		return iter_vec.get(0);
+	}
+
+	/**
+	 * Start and run the iteration until fixpoint, where the
+	 * value fx and the gradient gx of f at x are already known.
+	 * @return the best alpha
+	 */
+	public double search(Vector x, Vector d, double fx, Vector gx) {
+		start(x,d,fx,gx);
+		search(null);
+		return iter_vec.get(0);
+	}
+
+	/**
+	 * A cancelled search returns alpha=0: the current trial step may not
+	 * satisfy the conditions of the search (e.g., f may be greater than
+	 * at x0), so the outer algorithm must not use it.
+	 */
+	@Override
+	protected void cancelled() {
+		iter_vec.set(0, 0);
+	}
+
+	/**
+	 * Line search iterations are recorded apart from the
+	 * iterations of the outer algorithm.
+	 */
+	@Override
+	protected void recordIteration(Metrics m, long time, long bytes) {
+		m.lineSearchIteration(time);
+	}
+
+	/**
+	 * Return the value of f at the point x+alpha*d reached by
+	 * the last search, and store the gradient of f at this point in g.
+	 * <p>
+	 * What the search has already computed at this point is reused.
+	 * Must be called before x or d are modified.
+	 */
+	public double resultWithGrad(Vector g) {
+		Metrics m=getMetrics();
+		if (m==null) return result(g);
+		long time=System.nanoTime();
+		double fx=result(g);
+		m.lineSearchResult(System.nanoTime()-time);
+		return fx;
+	}
+
+	private double result(Vector g) {
+		double alpha = iter_vec.get(0);
+		if (alpha == 0 && known_grad0) {
+			g.set(grad0);
+			return value0();
+		}
+		if (cached(x0, d, alpha)) {
+			if (cache_has_value && cache_has_grad) {
+				g.set(grad);
+				return cache_value;
+			} else if (cache_has_grad) {
+				g.set(grad);
+				return f.eval(point(x0, d, alpha));
+			} else if (cache_has_value) {
+				g.set(f.grad(point(x0, d, alpha)));
+				return cache_value;
+			}
+		}
+		return f.evalWithGrad(point(x0, d, alpha), g);
 	}
-	
+
+	/**
+	 * Return f(x0), computed only once per search
+	 * (the gradient is not computed).
+	 */
+	protected double value0() {
+		if (!known_value0) {
+			f0 = eval(x0, d, 0);
+			known_value0 = true;
+		}
+		return f0;
+	}
+
+	/**
+	 * Return g'(0), computed only once per search
+	 * (with f(x0) if it is not known yet).
+	 */
+	protected double slope0() {
+		if (!known_grad0) {
+			if (known_value0) {
+				slope0 = derivative(x0, d, 0);
+			} else {
+				f0 = evalWithDerivative(x0, d, 0);
+				slope0 = last_slope;
+				known_value0 = true;
+			}
+			grad0.set(grad);
+			known_grad0 = true;
+		}
+		return slope0;
+	}
+
 	/**
 	 * Return the value of f(x+alpha*d).
 	 */
 	public double eval(Vector x, Vector d, double alpha) {
-		return f.eval(x.add(d.leftmul(alpha)));
+		double fx = f.eval(point(x, d, alpha));
+		cache(x, d, alpha, true, false);
+		cache_value = fx;
+		return fx;
 	}
-	
+
 	/**
 	 * Return the derivative of the restriction of the function
 	 * to the line passing by x and directed by d, at x, that is:
-	 * 
+	 *
 	 * g'(alpha) with g(alpha)=f(x+alpha*d).
 	 */
 	public double derivative(Vector x, Vector d, double alpha) {
-		return f.grad(x.add(d.leftmul(alpha))).scalar(d);
+		grad.set(f.grad(point(x, d, alpha)));
+		cache(x, d, alpha, false, true);
+		return grad.dot(d);
+	}
+
+	/**
+	 * Return the value of f(x+alpha*d), and store the derivative
+	 * g'(alpha) (see "derivative") in "last_slope".
+	 * <p>
+	 * Cheaper than calling eval and derivative if f shares work
+	 * between its value and its gradient (see RealFunc.evalWithGrad).
+	 */
+	public double evalWithDerivative(Vector x, Vector d, double alpha) {
+		double fx = f.evalWithGrad(point(x, d, alpha), grad);
+		cache(x, d, alpha, true, true);
+		cache_value = fx;
+		last_slope = grad.dot(d);
+		return fx;
+	}
+
+	/**
+	 * Return the derivative computed by the last call to evalWithDerivative.
+	 */
+	public double getLastSlope() {
+		return last_slope;
+	}
+
+	/**
+	 * Return x+alpha*d, computed in the workspace
+	 * (the result is overwritten by the next call).
+	 */
+	protected Vector point(Vector x, Vector d, double alpha) {
+		point.set(x);
+		return point.axpy(alpha, d);
+	}
+
+	/*
+	 * Record what is known at x+alpha*d (what was known before
+	 * at the same point is kept).
+	 */
+	private void cache(Vector x, Vector d, double alpha, boolean value, boolean gradient) {
+		if (!cached(x, d, alpha)) {
+			cache_x = x;
+			cache_d = d;
+			cache_alpha = alpha;
+			cache_has_value = false;
+			cache_has_grad = false;
+		}
+		cache_has_value |= value;
+		cache_has_grad |= gradient;
+	}
+
+	private boolean cached(Vector x, Vector d, double alpha) {
+		return cache_x == x && cache_d == d && cache_alpha == alpha;
 	}
 
 }
@@ -47,8 +47,15 @@ public class SlopeIter extends LineSearch {
      */
     public double armijo(Vector x, Vector d) {
         double h = H0_ARMIJO;
-        double f0 = eval(x, d, 0);
-        double fp0 = derivative(x, d, 0);
+        double f0, fp0;
+        if (x == x0 && d == this.d) {
+            // already known in the current search
+            f0 = value0();
+            fp0 = slope0();
+        } else {
+            f0 = evalWithDerivative(x, d, 0);
+            fp0 = last_slope;
+        }
 
         while (eval(x, d, h) > f0 + fp0 * EPS_ARMIJO * h && h > HMIN_ARMIJO) {
             h = h / ETA_ARMIJO;
@@ -77,7 +84,7 @@ public class SlopeIter extends LineSearch {
 
         if (current_iteration() == 0) {
             alpha1 = alpha;
-            slope1 = derivative(x0, d, alpha1);
+            slope1 = slope0(); // alpha1=0
 
             if (Math.abs(slope1) < getEpsilon()) {
                 if (log) System.out.println("[slopeiter] exit: initial slope~0.");
@@ -0,0 +1,225 @@
+package line;
+
+import func.RealFunc;
+import solve.EndOfIteration;
+
+/**
+ * Line search for the strong Wolfe conditions:
+ * <pre>
+ *   g(alpha) <= g(0) + C1*alpha*g'(0)      (sufficient decrease)
+ *   |g'(alpha)| <= C2*|g'(0)|               (curvature)
+ * </pre>
+ * with g(alpha)=f(x+alpha*d).
+ * <p>
+ * The search starts from alpha=1 (the natural step of Newton-like methods)
+ * and first expands the step until an interval containing acceptable steps
+ * is bracketed, then shrinks this interval ("zoom"). New trial steps are
+ * minimizers of the cubic interpolating g and g' at the two last points,
+ * safeguarded (as in Moré and Thuente) so that they stay well inside the
+ * interval; bisection is used when the cubic is not reliable.
+ * <p>
+ * Each iteration costs one evaluation of f and of its gradient (none for
+ * alpha=0 if the start point is known, see LineSearch), and the
+ * search typically ends after 1 to 3 iterations with quasi-Newton methods.
+ *
+ * @see "J. Nocedal and S. Wright, Numerical Optimization, algorithms 3.5 and 3.6"
+ */
+public class StrongWolfe extends LineSearch {
+
+    /**
+     * Default sufficient decrease parameter.
+     */
+    public final static double DEFAULT_C1 = 1e-4;
+
+    /**
+     * Default curvature parameter (suited to quasi-Newton
+     * methods; 0.1 is more suited to conjugate gradients).
+     */
+    public final static double DEFAULT_C2 = 0.9;
+
+    public final static double ALPHA_INIT = 1;
+    public final static double ALPHA_MAX = 1e10;
+    public final static int MAX_EVAL = 30;
+
+    /**
+     * Trial steps are kept at this fraction of the interval
+     * away from its bounds.
+     */
+    private final static double SAFEGUARD = 0.1;
+
+    private final double c1;
+    private final double c2;
+
+    private double phi0;  // g(0)
+    private double dphi0; // g'(0)
+
+    private boolean zoom; // false: bracketing phase, true: zoom phase
+
+    // bracketing phase: previous trial step
+    private double alpha_prev, phi_prev, dphi_prev;
+
+    // zoom phase: the interval [lo, hi] (lo is the best step found)
+    private double alpha_lo, phi_lo, dphi_lo;
+    private double alpha_hi, phi_hi, dphi_hi;
+
+    /**
+     * Build the line search for a function f with default parameters.
+     */
+    public StrongWolfe(RealFunc f) {
+        this(f, DEFAULT_C1, DEFAULT_C2);
+    }
+
+    /**
+     * Build the line search for a function f.
+     *
+     * @param c1 the sufficient decrease parameter
+     * @param c2 the curvature parameter (c1 < c2 < 1)
+     */
+    public StrongWolfe(RealFunc f, double c1, double c2) {
+        super(f);
+        assert (0 < c1 && c1 < c2 && c2 < 1);
+        this.c1 = c1;
+        this.c2 = c2;
+    }
+
+    /**
+     * See Algorithm
+     */
+    @Override
+    public void compute_next() throws EndOfIteration {
+        double alpha = iter_vec.get(0);
+
+        if (current_iteration() == 0) {
+            double phi = value0();
+            double dphi = slope0();
+
+            if (dphi >= 0) {
+                if (log) System.out.println("[wolfe] abort: initial slope>=0.");
+                throw new EndOfIteration();
+            }
+            phi0 = phi;
+            dphi0 = dphi;
+            zoom = false;
+            alpha_prev = alpha;
+            phi_prev = phi;
+            dphi_prev = dphi;
+            iter_vec.set(0, ALPHA_INIT);
+            return;
+        }
+
+        double phi = evalWithDerivative(x0, d, alpha);
+        double dphi = last_slope;
+
+        if (!zoom) {
+            bracket(alpha, phi, dphi);
+        } else {
+            zoom(alpha, phi, dphi);
+        }
+    }
+
+    /*
+     * Bracketing phase: alpha is the current trial step, alpha_prev the previous one.
+     */
+    private void bracket(double alpha, double phi, double dphi) throws EndOfIteration {
+        if (phi > phi0 + c1 * alpha * dphi0 || (current_iteration() > 1 && phi >= phi_prev)) {
+            startZoom(alpha_prev, phi_prev, dphi_prev, alpha, phi, dphi);
+            return;
+        }
+
+        if (Math.abs(dphi) <= -c2 * dphi0) {
+            if (log) System.out.println("[wolfe] normal exit: strong Wolfe conditions satisfied.");
+            throw new EndOfIteration();
+        }
+
+        if (dphi >= 0) {
+            startZoom(alpha, phi, dphi, alpha_prev, phi_prev, dphi_prev);
+            return;
+        }
+
+        if (alpha >= ALPHA_MAX || current_iteration() >= MAX_EVAL) {
+            if (log) System.out.println("[wolfe] exit: maximal step reached.");
+            throw new EndOfIteration();
+        }
+
+        // extrapolation: the minimizer of the cubic, kept in [1.1*alpha, 4*alpha]
+        double next = cubicMin(alpha_prev, phi_prev, dphi_prev, alpha, phi, dphi);
+        if (!(next >= 1.1 * alpha && next <= 4 * alpha)) next = 2 * alpha;
+
+        alpha_prev = alpha;
+        phi_prev = phi;
+        dphi_prev = dphi;
+        iter_vec.set(0, Math.min(next, ALPHA_MAX));
+    }
+
+    /*
+     * Zoom phase: alpha is a trial step inside [lo, hi].
+     */
+    private void zoom(double alpha, double phi, double dphi) throws EndOfIteration {
+        if (phi > phi0 + c1 * alpha * dphi0 || phi >= phi_lo) {
+            alpha_hi = alpha;
+            phi_hi = phi;
+            dphi_hi = dphi;
+        } else {
+            if (Math.abs(dphi) <= -c2 * dphi0) {
+                if (log) System.out.println("[wolfe] normal exit: strong Wolfe conditions satisfied.");
+                throw new EndOfIteration();
+            }
+            if (dphi * (alpha_hi - alpha_lo) >= 0) {
+                alpha_hi = alpha_lo;
+                phi_hi = phi_lo;
+                dphi_hi = dphi_lo;
+            }
+            alpha_lo = alpha;
+            phi_lo = phi;
+            dphi_lo = dphi;
+        }
+        nextTrial();
+    }
+
+    /*
+     * Enter the zoom phase with the interval [lo, hi].
+     */
+    private void startZoom(double lo, double flo, double dlo, double hi, double fhi, double dhi) throws EndOfIteration {
+        zoom = true;
+        alpha_lo = lo;
+        phi_lo = flo;
+        dphi_lo = dlo;
+        alpha_hi = hi;
+        phi_hi = fhi;
+        dphi_hi = dhi;
+        nextTrial();
+    }
+
+    /*
+     * Set the next trial step inside [lo, hi], or stop with
+     * the best step (lo) if the interval is too small.
+     */
+    private void nextTrial() throws EndOfIteration {
+        double width = Math.abs(alpha_hi - alpha_lo);
+        if (width <= 1e-16 * Math.max(1, alpha_lo) || current_iteration() >= MAX_EVAL) {
+            if (log) System.out.println("[wolfe] abort: interval too small, best step returned.");
+            iter_vec.set(0, alpha_lo);
+            throw new EndOfIteration();
+        }
+
+        double a = Math.min(alpha_lo, alpha_hi);
+        double b = Math.max(alpha_lo, alpha_hi);
+        double next = cubicMin(alpha_lo, phi_lo, dphi_lo, alpha_hi, phi_hi, dphi_hi);
+        if (!(next >= a + SAFEGUARD * width && next <= b - SAFEGUARD * width)) {
+            next = 0.5 * (a + b);
+        }
+        iter_vec.set(0, next);
+    }
+
+    /*
+     * Minimizer of the cubic interpolating (a, fa, ga) and (b, fb, gb).
+     * Return NaN if the cubic has no minimizer.
+     */
+    private static double cubicMin(double a, double fa, double ga, double b, double fb, double gb) {
+        double d1 = ga + gb - 3 * (fa - fb) / (a - b);
+        double delta = d1 * d1 - ga * gb;
+        if (delta < 0) return Double.NaN;
+        double d2 = Math.signum(b - a) * Math.sqrt(delta);
+        return b - (b - a) * (gb + d2 - d1) / (gb - ga + 2 * d2);
+    }
+}
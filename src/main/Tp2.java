@@ -7,13 +7,12 @@ import func.Rosenbrock;
 import line.SlopeIter;
 import solve.Algorithm;
 import solve.ConjugateGradients;
+import solve.IterationHistory;
+import solve.QuasiNewton;
 import solve.SteepestDescent;
 import util.Plot;
 import util.Vector;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static java.lang.Math.*;
 import static java.util.stream.IntStream.range;
 
@@ -33,27 +32,27 @@ public class Tp2 {
      * @param fileName  name of the output plot file
      */
     private static void run(RealFunc f, Vector xopt, Vector x0, Algorithm algo, String plotTitle, String fileName) {
-        List<Vector> iterations = new ArrayList<>();
+        IterationHistory history = new IterationHistory(N); // the N first iterations
         algo.log = true;
+        algo.addObserver(history);
         algo.start(x0);
-        algo.search(iterations);
+        algo.search(null);
+
+        // the values f(x_k) are those computed by the algorithm
+        double fopt = f.eval(xopt);
 
         new Plot(
             plotTitle,
             "#iter",
             "log(x-x*)",
             fileName,
-            // Stores the iteration number k:  k=1, 2...
-            range(0, min(N, iterations.size() - 1)).mapToDouble(Double::new).toArray(),
+            // Stores the iteration number k:  k=0, 1, 2...
+            range(0, history.size()).mapToDouble(history::iteration).toArray(),
             // Stores the logarithm of the distance between f(x_k) and f(x*).
-            iterations.stream().limit(N).mapToDouble(x -> logDistance(f, x, xopt)).toArray()
+            range(0, history.size()).mapToDouble(k -> log(abs(fopt - history.value(k)))).toArray()
         );
     }
 
-    private static double logDistance(RealFunc f, Vector x, Vector xopt) {
-        return log(abs(f.eval(xopt) - f.eval(x)));
-    }
-
 
     public static void steepestAlmostDiag1() {
         AlmostDiag almostDiag5 = new AlmostDiag(5);
@@ -140,6 +139,30 @@ public class Tp2 {
                 new SlopeIter(rosenbrock)), "Conjugate gradients - Rosenbrock", "conjgrad_rosenbrock.jpg");
     }
 
+    public static void quasiNewtonHilbert() {
+        RealFunc hilbert5 = new Hilbert(5);
+        Vector zero5 = new Vector(new double[]{0, 0, 0, 0, 0});
+        Vector x0 = new Vector(new double[]{1, 2, -1, 3, 1});
+
+        run(hilbert5,
+            zero5,
+            x0,
+            new QuasiNewton(hilbert5,
+                new SlopeIter(hilbert5)), "BFGS - Hilbert", "bfgs_hilbert.jpg");
+    }
+
+    public static void quasiNewtonRosenbrock() {
+        RealFunc rosenbrock = new Rosenbrock();
+        Vector xopt = new Vector(new double[]{1, 1});
+        Vector x0 = new Vector(new double[]{1, 2});
+
+        run(rosenbrock,
+            xopt,
+            x0,
+            new QuasiNewton(rosenbrock,
+                new SlopeIter(rosenbrock)), "BFGS - Rosenbrock", "bfgs_rosenbrock.jpg");
+    }
+
 
     public static void main(String[] args) {
 
@@ -156,5 +179,9 @@ public class Tp2 {
         conjgradHilbert();
 
         conjgradRosenbrock();
+
+        quasiNewtonHilbert();
+
+        quasiNewtonRosenbrock();
     }
 }
@@ -2,6 +2,7 @@ package solve;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.LongSupplier;
 
 import util.Vector;
 
@@ -24,6 +25,22 @@ public abstract class Algorithm {
      */
     protected Vector iter_vec;
 
+    /**
+     * Step length of the last iteration along the direction
+     * (to be set by subclasses, NaN if not relevant)
+     */
+    protected double last_alpha;
+
+    /**
+     * Previous vector (workspace of "advance")
+     */
+    private Vector prev_vec;
+
+    /**
+     * Read-only view of iter_vec
+     */
+    private Vector view;
+
     /**
      * First stop criterion: when distance between two vectors
      * are less than "eps", convergence is assumed to be reached).
@@ -49,6 +66,47 @@ public abstract class Algorithm {
      */
     private int iter_nb;
 
+    /**
+     * Additional stop criteria
+     */
+    private List<StopCriterion> criteria = new ArrayList<>();
+
+    /**
+     * True when a criterion has fired (the iteration ends at the next step)
+     */
+    private boolean stop;
+
+    /**
+     * Why the iteration is over (null if it is not)
+     */
+    private String stop_reason;
+
+    /**
+     * Norm of the last step, and time of the start (ns)
+     */
+    private double step_norm;
+    private long start_time;
+
+    /**
+     * Observers of the iterations, their (reused) record,
+     * and the counter of evaluations (may be null)
+     */
+    private List<IterationObserver> observers = new ArrayList<>();
+    private IterationRecord record = new IterationRecord();
+    private LongSupplier evaluations;
+
+    /**
+     * Cancellation token (may be null), polled every
+     * "cancel_period" iterations
+     */
+    private Cancellation cancellation;
+    private int cancel_period = 1;
+
+    /**
+     * Metrics (null if disabled)
+     */
+    private Metrics metrics;
+
     /**
      * Calculate the next iterate.
      * <p>
@@ -67,6 +125,157 @@ public abstract class Algorithm {
         return new Vector(iter_vec);
     }
 
+    /**
+     * Return a read-only view of the current iterate (no copy).
+     * <p>
+     * The view follows the iterations: it always shows the current
+     * iterate (until the next call to "start").
+     */
+    public Vector current_view() {
+        return view;
+    }
+
+    /**
+     * Return the value of f at the current iterate if the algorithm
+     * knows it (no evaluation is made), NaN otherwise.
+     */
+    public double current_value() {
+        return Double.NaN;
+    }
+
+    /**
+     * Return (a read-only view of) the gradient of f at the current
+     * iterate if the algorithm knows it (no evaluation is made),
+     * null otherwise.
+     */
+    public Vector current_grad() {
+        return null;
+    }
+
+    /**
+     * Return the norm of the last step ||x_{k+1}-x_k||.
+     */
+    public double step_norm() {
+        return step_norm;
+    }
+
+    /**
+     * Return the step length of the last iteration along
+     * the direction (NaN if not relevant).
+     */
+    public double current_alpha() {
+        return last_alpha;
+    }
+
+    /**
+     * Return the time since the start (in ms).
+     */
+    public long elapsed_time() {
+        return (System.nanoTime() - start_time) / 1000000;
+    }
+
+    /**
+     * Add a stop criterion: the iteration ends as soon as
+     * one of the criteria fires (see getStopReason).
+     */
+    public void addStopCriterion(StopCriterion c) {
+        criteria.add(c);
+    }
+
+    /**
+     * Add an observer, called with a record of each iteration
+     * (including the starting point, as iteration 0).
+     */
+    public void addObserver(IterationObserver o) {
+        observers.add(o);
+    }
+
+    /**
+     * Set the counter of evaluations reported in the
+     * records of the iterations (e.g., CachedFunc::getMisses).
+     */
+    public void setEvaluationCounter(LongSupplier evaluations) {
+        this.evaluations = evaluations;
+    }
+
+    /**
+     * Set the cancellation token, polled before each iteration:
+     * when it is cancelled, the iteration ends (the current iterate
+     * being kept) with the stop reason "cancelled".
+     */
+    public void setCancellation(Cancellation c) {
+        setCancellation(c, 1);
+    }
+
+    /**
+     * Set the cancellation token, polled every "period" iterations.
+     */
+    public void setCancellation(Cancellation c, int period) {
+        assert (period > 0);
+        this.cancellation = c;
+        this.cancel_period = period;
+    }
+
+    /**
+     * Return the cancellation token (null if none).
+     */
+    public Cancellation getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Return the number of iterations between two polls of the token.
+     */
+    public int getCancellationPeriod() {
+        return cancel_period;
+    }
+
+    /**
+     * Set the metrics updated by the iterations (null to disable them).
+     */
+    public void setMetrics(Metrics m) {
+        this.metrics = m;
+    }
+
+    /**
+     * Return the metrics (null if disabled).
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Update the metrics with an iteration which took "time" ns
+     * and allocated "bytes" (overloaded by inner algorithms).
+     */
+    protected void recordIteration(Metrics m, long time, long bytes) {
+        m.iteration(this, time, bytes);
+    }
+
+    /**
+     * Called when the iteration ends because the token is cancelled, to
+     * go back to a valid iterate if the current one is not (nothing by
+     * default: the current iterate is kept).
+     */
+    protected void cancelled() {
+    }
+
+    /*
+     * True if the token is cancelled (e.g., by a line search of the
+     * outer algorithm, which then returns a null step).
+     */
+    private boolean isCancelled() {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /**
+     * Return why the iteration is over (the criterion that has
+     * fired), or null if it is not.
+     */
+    public String getStopReason() {
+        return stop_reason;
+    }
+
     /**
      * Return the current number of iterations.
      */
@@ -110,57 +319,157 @@ public abstract class Algorithm {
      * Start the iteration from init_vec (can be overloaded by
      * subclasses if additional data needs to
      * be initialized)
+     * <p>
+     * init_vec is copied, so that subclasses can update
+     * "iter_vec" in place.
      */
     public void start(Vector init_vec) {
-        iter_vec = init_vec;
+        iter_vec = new Vector(init_vec);
+        prev_vec = new Vector(init_vec.size());
+        view = iter_vec.readOnly();
         iter_nb = 0;
         just_computed = false;
+        stop = false;
+        stop_reason = null;
+        step_norm = Double.NaN;
+        last_alpha = Double.NaN;
+        start_time = System.nanoTime();
     }
 
-    /**
-     * @return true iff the iteration is not over
+    /*
+     * Fill the record of the current iteration and send it to the observers.
      */
-    public boolean hasNext() {
-        just_computed = (next() != null);
+    private void notifyObservers() {
+        if (observers.isEmpty()) return;
+        Vector g = current_grad();
+        record.iteration = iter_nb;
+        record.value = current_value();
+        record.grad_norm = g == null ? Double.NaN : g.norm();
+        record.step = step_norm;
+        record.alpha = last_alpha;
+        record.evaluations = evaluations == null ? -1 : evaluations.getAsLong();
+        for (IterationObserver o : observers) o.iteration(record);
+    }
 
-        return just_computed;
+    /*
+     * Reset the stop criteria. Called by the first step, so that
+     * the subclasses have initialized their data (value, gradient...).
+     */
+    private void resetCriteria() {
+        for (StopCriterion c : criteria) c.reset(this);
     }
 
     /**
-     * Calculate and return the next iterate.
-     * and increment the number of iterations.
+     * Calculate the next iterate (in place) and increment
+     * the number of iterations.
      * <p>
-     * Return null if iteration is over.
+     * Contrary to "next", no vector is allocated: the previous iterate
+     * is kept in a workspace. The new iterate can be read with
+     * current_view().
+     *
+     * @return false iff the iteration is over
      */
-    public Vector next() {
+    public boolean advance() {
         if (just_computed) {
             just_computed = false;
-            return current_vector();
+            return true;
+        }
+
+        if (stop) {
+            if (log) System.out.println("[algorithm] exit: " + stop_reason);
+            stop = false;
+            return false;
         }
 
+        if (stop_reason != null) return false; // already over
+
         if (iter_nb == maxIteration) {
             if (log) System.out.println("[algorithm] abort: number of iterations exceeds maximum");
-            return null;
+            stop_reason = "maximal number of iterations";
+            return false;
+        }
+
+        if (iter_nb == 0) {
+            resetCriteria();
+            notifyObservers();
+        }
+
+        if (cancellation != null && iter_nb % cancel_period == 0 && cancellation.isCancelled()) {
+            if (log) System.out.println("[algorithm] abort: cancelled");
+            stop_reason = "cancelled";
+            cancelled();
+            return false;
         }
+
+        prev_vec.set(iter_vec);
+
         try {
-            Vector old_vec = current_vector(); // copy
+            step();
+        } catch (EndOfIteration e) {
+            stop_reason = isCancelled() ? "cancelled" : "end of iteration";
+            return false;
+        }
 
-            compute_next();
+        step_norm = iter_vec.distance(prev_vec);
+        if (step_norm < eps) {
+            stop_reason = isCancelled() ? "cancelled" : "step norm < " + eps;
+            return false;
+        }
 
-            if (iter_vec.sub(old_vec).norm() < eps) throw new EndOfIteration();
+        iter_nb++;
+        notifyObservers();
 
-            iter_nb++;
+        for (StopCriterion c : criteria) {
+            if (c.test(this)) {
+                // the new iterate is valid: the iteration ends at the next step
+                stop = true;
+                stop_reason = c.toString();
+                break;
+            }
+        }
+        return true;
+    }
 
-            return current_vector();
-        } catch (EndOfIteration e) { // can be raised also by compute_next
-            return null;
+    /*
+     * compute_next, measured if the metrics are enabled.
+     */
+    private void step() throws EndOfIteration {
+        if (metrics == null) {
+            compute_next();
+            return;
         }
+        long time = System.nanoTime();
+        long bytes = Metrics.allocatedBytes();
+        try {
+            compute_next();
+        } finally {
+            recordIteration(metrics, System.nanoTime() - time, Metrics.allocatedBytes() - bytes);
+        }
+    }
+
+    /**
+     * @return true iff the iteration is not over
+     */
+    public boolean hasNext() {
+        if (!just_computed) {
+            just_computed = advance();
+        }
+        return just_computed;
+    }
 
+    /**
+     * Calculate and return (a copy of) the next iterate
+     * and increment the number of iterations.
+     * <p>
+     * Return null if iteration is over.
+     */
+    public Vector next() {
+        return advance() ? current_vector() : null;
     }
 
     /**
      * Run the iteration until fix-point
-     * and return the last iterate.
+     * and return (a copy of) the last iterate.
      * <p>
      * Usually preceded by a call to "start".
      */
@@ -174,14 +483,15 @@ public abstract class Algorithm {
      * and store all the iterates in an ArrayList.
      * <p>
      * Usually preceded by a call to "start".
+     * If a is null, the iterates are not stored
+     * (and no vector is allocated).
      */
     public void search(List<Vector> a) {
 
         if (a != null) a.add(current_vector());
 
-        while (hasNext()) {
-            Vector tmp = next();
-            if (a != null) a.add(tmp);
+        while (advance()) {
+            if (a != null) a.add(current_vector());
         }
     }
 }
@@ -0,0 +1,43 @@
+package solve;
+
+import util.Vector;
+
+/**
+ * Starting points in a box [lo, hi], obtained from
+ * points u of the unit cube by x = lo + u*(hi-lo).
+ */
+public abstract class BoxStarts implements StartGenerator {
+
+    protected final Vector lo;
+    protected final Vector hi;
+
+    /**
+     * Workspace for the point of the unit cube
+     */
+    protected final double[] u;
+
+    public BoxStarts(Vector lo, Vector hi) {
+        assert (lo.size() == hi.size());
+        this.lo = lo;
+        this.hi = hi;
+        this.u = new double[lo.size()];
+    }
+
+    /**
+     * @return the dimension of the points.
+     */
+    public int dim() {
+        return u.length;
+    }
+
+    /**
+     * Set the next point of the unit cube in u.
+     */
+    protected abstract void nextUnit();
+
+    @Override
+    public Vector next() {
+        nextUnit();
+        return Vector.makeVector(u.length, i -> lo.get(i) + u[i] * (hi.get(i) - lo.get(i)));
+    }
+}
@@ -0,0 +1,67 @@
+package solve;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative cancellation of an algorithm (see Algorithm.setCancellation).
+ * <p>
+ * The token is cancelled either explicitly (by "cancel", from any thread)
+ * or implicitly when its deadline has passed or when the thread running the
+ * algorithm is interrupted (e.g., by Future.cancel(true)). The algorithm
+ * polls the token between two iterations: it then stops with a valid
+ * iterate, which can still be read. Nothing is killed, so the thread is
+ * given back as soon as the current iteration (or line search iteration)
+ * ends.
+ * <p>
+ * A token can be shared by several algorithms (e.g., the outer algorithm
+ * and its line search, or concurrent runs).
+ */
+public class Cancellation {
+
+    private volatile boolean cancelled;
+    private final long start;    // System.nanoTime() at the creation
+    private final long duration; // ns, Long.MAX_VALUE for no deadline
+
+    /**
+     * A token without deadline.
+     */
+    public Cancellation() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * A token cancelled "timeout" milliseconds from now
+     * (Long.MAX_VALUE means no deadline).
+     */
+    public Cancellation(long timeout) {
+        this.start = System.nanoTime();
+        this.duration = TimeUnit.MILLISECONDS.toNanos(timeout); // saturated
+    }
+
+    /**
+     * Cancel the algorithms polling this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true iff the token has been cancelled, the deadline has
+     * passed or the current thread has been interrupted.
+     */
+    public boolean isCancelled() {
+        if (cancelled) return true;
+        if (isExpired() || Thread.currentThread().isInterrupted()) {
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    /**
+     * @return true iff the token has a deadline which has passed.
+     */
+    public boolean isExpired() {
+        // (the difference of two nanoTime values does not overflow)
+        return duration != Long.MAX_VALUE && System.nanoTime() - start >= duration;
+    }
+}
@@ -1,11 +1,10 @@
 package solve;
 
+import func.QuadraForm;
 import func.RealFunc;
 import line.LineSearch;
 import util.Vector;
 
-import static java.lang.Math.pow;
-
 /**
  * Non-linear variant of the conjugate gradients.
  *
@@ -16,6 +15,18 @@ public class ConjugateGradients extends Algorithm {
     private LineSearch s;
     private Vector iter_dir;
 
+    /**
+     * Value and gradient of f at the current iterate
+     */
+    private double value;
+    private Vector grad;
+    private Vector grad_view; // read-only view of grad
+
+    /**
+     * Squared norm of the gradient at the current iterate
+     */
+    private double grad_norm2;
+
     /**
      * Build the algorithm for a given function and
      * with an underlying line search technique.
@@ -27,6 +38,52 @@ public class ConjugateGradients extends Algorithm {
         this.f = f;
         this.s = s;
         this.iter_dir = new Vector(f.dim());
+        this.grad = new Vector(f.dim());
+        this.grad_view = grad.readOnly();
+    }
+
+    /**
+     * Build a conjugate gradients algorithm for f: the linear variant
+     * (exact steps, one matrix-vector product per iteration) if f is
+     * a quadratic form, the non-linear variant with the line search s otherwise.
+     */
+    public static Algorithm makeConjugateGradients(RealFunc f, LineSearch s) {
+        if (f instanceof QuadraForm) return new LinearConjugateGradients((QuadraForm) f);
+        return new ConjugateGradients(f, s);
+    }
+
+    /**
+     * The token is also polled by the line search.
+     */
+    @Override
+    public void setCancellation(Cancellation c, int period) {
+        super.setCancellation(c, period);
+        s.setCancellation(c);
+    }
+
+    /**
+     * The line search updates the same metrics.
+     */
+    @Override
+    public void setMetrics(Metrics m) {
+        super.setMetrics(m);
+        s.setMetrics(m);
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public double current_value() {
+        return value;
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public Vector current_grad() {
+        return grad_view;
     }
 
     /**
@@ -34,7 +91,10 @@ public class ConjugateGradients extends Algorithm {
      */
     public void start(Vector x0) {
         super.start(x0);
-        this.iter_dir = f.grad(x0).minus();
+        this.value = f.evalWithGrad(iter_vec, grad);
+        this.iter_dir.set(grad);
+        this.iter_dir.scaleInPlace(-1);
+        this.grad_norm2 = grad.norm2();
     }
 
     /**
@@ -43,9 +103,17 @@ public class ConjugateGradients extends Algorithm {
      * (update iter_vec).
      */
     public void compute_next() throws EndOfIteration {
-        Vector gk = f.grad(iter_vec);
-        iter_vec = iter_vec.add(iter_dir.leftmul(s.search(iter_vec, iter_dir)));
-        Vector gkPlus1 = f.grad(iter_vec);
-        iter_dir = gkPlus1.minus().add(iter_dir.leftmul(pow(gkPlus1.norm() / gk.norm(), 2)));
+        double alpha = last_alpha = s.search(iter_vec, iter_dir, value, grad);
+        if (alpha == 0) {
+            // null step (e.g., cancelled line search): the iterate is kept, no update
+            if (log) System.out.println("[cg] exit: null step.");
+            throw new EndOfIteration();
+        }
+        value = s.resultWithGrad(grad); // g_{k+1}, before iter_vec is moved
+        iter_vec.axpy(alpha, iter_dir);
+        double gkPlus1_norm2 = grad.norm2();
+        // Fletcher-Reeves: d_{k+1} = -g_{k+1} + (||g_{k+1}||/||g_k||)^2 d_k
+        iter_dir.scaleInPlace(gkPlus1_norm2 / grad_norm2).axpy(-1, grad);
+        grad_norm2 = gkPlus1_norm2;
     }
 }
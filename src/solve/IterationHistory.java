@@ -0,0 +1,140 @@
+package solve;
+
+/**
+ * Observer that keeps the records of (some of) the iterations, in
+ * primitive arrays of bounded size: the memory used does not depend on
+ * the number of iterations nor on the dimension.
+ * <p>
+ * Only one iteration out of "every" is kept (down-sampling). When the
+ * capacity is reached, either the oldest records are overwritten (ring
+ * buffer: the last iterations are kept) or the new ones are ignored (the
+ * first iterations are kept).
+ */
+public class IterationHistory implements IterationObserver {
+
+    private final int every;
+    private final boolean ring;
+
+    private final int[] iteration;
+    private final double[] value;
+    private final double[] grad_norm;
+    private final double[] step;
+    private final double[] alpha;
+    private final long[] evaluations;
+
+    private int first; // index of the oldest record
+    private int size;  // number of records
+
+    /**
+     * Keep all the iterations, up to "capacity" (the first ones).
+     */
+    public IterationHistory(int capacity) {
+        this(capacity, 1, false);
+    }
+
+    /**
+     * Build the history.
+     *
+     * @param capacity maximal number of records
+     * @param every    only the iterations k with k % every == 0 are kept
+     * @param ring     true to keep the last records, false to keep the first ones
+     */
+    public IterationHistory(int capacity, int every, boolean ring) {
+        assert (capacity > 0 && every > 0);
+        this.every = every;
+        this.ring = ring;
+        this.iteration = new int[capacity];
+        this.value = new double[capacity];
+        this.grad_norm = new double[capacity];
+        this.step = new double[capacity];
+        this.alpha = new double[capacity];
+        this.evaluations = new long[capacity];
+    }
+
+    @Override
+    public void iteration(IterationRecord r) {
+        if (r.iteration % every != 0) return;
+
+        int capacity = iteration.length;
+        int k;
+        if (size < capacity) {
+            k = (first + size++) % capacity;
+        } else if (ring) {
+            k = first;
+            first = (first + 1) % capacity;
+        } else {
+            return;
+        }
+        iteration[k] = r.iteration;
+        value[k] = r.value;
+        grad_norm[k] = r.grad_norm;
+        step[k] = r.step;
+        alpha[k] = r.alpha;
+        evaluations[k] = r.evaluations;
+    }
+
+    /**
+     * Remove all the records.
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * @return the number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Index in the arrays of the i-th record (from the oldest).
+     */
+    private int index(int i) {
+        assert (i >= 0 && i < size);
+        return (first + i) % iteration.length;
+    }
+
+    /**
+     * @return the iteration number of the i-th record (from the oldest).
+     */
+    public int iteration(int i) {
+        return iteration[index(i)];
+    }
+
+    /**
+     * @return the value of f of the i-th record.
+     */
+    public double value(int i) {
+        return value[index(i)];
+    }
+
+    /**
+     * @return the norm of the gradient of the i-th record.
+     */
+    public double grad_norm(int i) {
+        return grad_norm[index(i)];
+    }
+
+    /**
+     * @return the norm of the step of the i-th record.
+     */
+    public double step(int i) {
+        return step[index(i)];
+    }
+
+    /**
+     * @return the step length of the i-th record.
+     */
+    public double alpha(int i) {
+        return alpha[index(i)];
+    }
+
+    /**
+     * @return the number of evaluations of the i-th record.
+     */
+    public long evaluations(int i) {
+        return evaluations[index(i)];
+    }
+}
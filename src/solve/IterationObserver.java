@@ -0,0 +1,15 @@
+package solve;
+
+/**
+ * Observer of the iterations of an algorithm (see Algorithm.addObserver).
+ */
+public interface IterationObserver {
+
+    /**
+     * Called after each iteration.
+     * <p>
+     * The record is reused by the algorithm (no allocation per iteration):
+     * its fields must be copied if they are kept.
+     */
+    void iteration(IterationRecord r);
+}
@@ -0,0 +1,43 @@
+package solve;
+
+/**
+ * What an algorithm knows about one of its iterations, without
+ * any additional evaluation (see IterationObserver).
+ */
+public class IterationRecord {
+
+    /**
+     * Number of the iteration (0 for the starting point)
+     */
+    public int iteration;
+
+    /**
+     * Value of f at the iterate (NaN if unknown)
+     */
+    public double value;
+
+    /**
+     * Norm of the gradient at the iterate (NaN if unknown)
+     */
+    public double grad_norm;
+
+    /**
+     * Norm of the step ||x_k - x_{k-1}|| (NaN for the starting point)
+     */
+    public double step;
+
+    /**
+     * Step length along the direction (NaN if not relevant)
+     */
+    public double alpha;
+
+    /**
+     * Number of evaluations so far (-1 if unknown)
+     */
+    public long evaluations;
+
+    public String toString() {
+        return "iter=" + iteration + " f=" + value + " |g|=" + grad_norm
+            + " step=" + step + " alpha=" + alpha + " evals=" + evaluations;
+    }
+}
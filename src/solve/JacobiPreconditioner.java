@@ -0,0 +1,30 @@
+package solve;
+
+import util.RealMatrix;
+import util.Vector;
+
+/**
+ * Jacobi (diagonal) preconditioner: M = diag(Q).
+ */
+public class JacobiPreconditioner implements Preconditioner {
+
+    private final double[] inv_diag;
+
+    /**
+     * Build the preconditioner of Q.
+     */
+    public JacobiPreconditioner(RealMatrix Q) {
+        int n = Q.nb_rows();
+        inv_diag = new double[n];
+        for (int i = 0; i < n; i++) {
+            double d = Q.get(i, i);
+            assert (d > 0);
+            inv_diag[i] = 1 / d;
+        }
+    }
+
+    @Override
+    public void apply(Vector r, Vector z) {
+        for (int i = 0; i < inv_diag.length; i++) z.set(i, inv_diag[i] * r.get(i));
+    }
+}
@@ -0,0 +1,193 @@
+package solve;
+
+import func.RealFunc;
+import line.LineSearch;
+import util.Vector;
+
+/**
+ * Limited-memory BFGS (L-BFGS).
+ * <p>
+ * Instead of the n*n matrix of QuasiNewton, only the last m pairs
+ * (s,y) of steps and gradient differences are kept, in ring buffers
+ * allocated once. The direction -H*grad is computed from them by
+ * the two-loop recursion, in O(m*n) time and memory per iteration,
+ * which makes the method usable in very high dimension.
+ */
+public class LBFGS extends Algorithm {
+
+    /**
+     * Default number of (s,y) pairs kept.
+     */
+    public final static int DEFAULT_HISTORY = 10;
+
+    private RealFunc f;
+    private LineSearch s;
+
+    private final int m;   // history size
+    private Vector[] S;    // last steps s_i = x_{i+1} - x_i (ring buffer)
+    private Vector[] Y;    // last differences y_i = grad_{i+1} - grad_i (ring buffer)
+    private double[] rho;  // 1/<s_i,y_i>
+    private double[] a;    // coefficients of the first loop
+    private int newest;    // index of the newest pair
+    private int count;     // number of pairs stored
+
+    private double value;  // value at the current iterate
+    private Vector grad;   // gradient at the current iterate
+    private Vector grad_view; // read-only view of grad
+    private Vector dir;    // direction
+
+    /**
+     * Build the algorithm for a given function and
+     * with an underlying line search technique.
+     *
+     * @param f the function
+     * @param s the line search algorithm
+     */
+    public LBFGS(RealFunc f, LineSearch s) {
+        this(f, s, DEFAULT_HISTORY);
+    }
+
+    /**
+     * Build the algorithm for a given function, with an underlying
+     * line search technique and a given history size.
+     *
+     * @param f the function
+     * @param s the line search algorithm
+     * @param m the number of (s,y) pairs kept
+     */
+    public LBFGS(RealFunc f, LineSearch s, int m) {
+        assert (m > 0);
+        this.f = f;
+        this.s = s;
+        this.m = m;
+        int n = f.dim();
+        this.S = new Vector[m];
+        this.Y = new Vector[m];
+        for (int i = 0; i < m; i++) {
+            S[i] = new Vector(n);
+            Y[i] = new Vector(n);
+        }
+        this.rho = new double[m];
+        this.a = new double[m];
+        this.grad = new Vector(n);
+        this.grad_view = grad.readOnly();
+        this.dir = new Vector(n);
+    }
+
+    /**
+     * The token is also polled by the line search.
+     */
+    @Override
+    public void setCancellation(Cancellation c, int period) {
+        super.setCancellation(c, period);
+        s.setCancellation(c);
+    }
+
+    /**
+     * The line search updates the same metrics.
+     */
+    @Override
+    public void setMetrics(Metrics m) {
+        super.setMetrics(m);
+        s.setMetrics(m);
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public double current_value() {
+        return value;
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public Vector current_grad() {
+        return grad_view;
+    }
+
+    /**
+     * Start the iteration
+     */
+    public void start(Vector x0) {
+        super.start(x0);
+        count = 0;
+        newest = m - 1;
+        value = f.evalWithGrad(iter_vec, grad);
+    }
+
+    /**
+     * Calculate the next iterate.
+     * <p>
+     * (update iter_vec).
+     */
+    public void compute_next() throws EndOfIteration {
+        direction();
+
+        if (dir.dot(grad) >= 0) {
+            if (log) System.out.println("[lbfgs] warning: not a descent direction, history cleared.");
+            count = 0;
+            dir.set(grad);
+            dir.scaleInPlace(-1);
+        }
+
+        double alpha = last_alpha = s.search(iter_vec, dir, value, grad);
+        if (alpha == 0) {
+            // null step (e.g., cancelled line search): the iterate is kept, no update
+            if (log) System.out.println("[lbfgs] exit: null step.");
+            throw new EndOfIteration();
+        }
+
+        // the oldest pair is overwritten by the new one
+        int slot = (newest + 1) % m;
+        Vector sk = S[slot];
+        Vector yk = Y[slot];
+
+        yk.set(grad);
+        value = s.resultWithGrad(grad); // before iter_vec is moved
+        grad.subInto(yk, yk);
+
+        sk.set(dir);
+        sk.scaleInPlace(alpha);
+        iter_vec.axpy(1, sk);
+
+        double sy = sk.dot(yk);
+        if (sy <= 0) {
+            // curvature condition not satisfied: the pair is dropped
+            if (log) System.out.println("[lbfgs] warning: s^T y<=0, pair skipped.");
+            if (count == m) count--; // the oldest pair has been overwritten
+            return;
+        }
+        rho[slot] = 1 / sy;
+        newest = slot;
+        if (count < m) count++;
+    }
+
+    /*
+     * dir := -H*grad (two-loop recursion).
+     */
+    private void direction() {
+        dir.set(grad);
+
+        // newest to oldest
+        for (int k = 0, i = newest; k < count; k++, i = (i + m - 1) % m) {
+            a[i] = rho[i] * S[i].dot(dir);
+            dir.axpy(-a[i], Y[i]);
+        }
+
+        // initial matrix H0 = gamma*I
+        if (count > 0) {
+            dir.scaleInPlace(1 / (rho[newest] * Y[newest].norm2()));
+        }
+
+        // oldest to newest
+        for (int k = 0, i = (newest - count + 1 + m) % m; k < count; k++, i = (i + 1) % m) {
+            double b = rho[i] * Y[i].dot(dir);
+            dir.axpy(a[i] - b, S[i]);
+        }
+
+        dir.scaleInPlace(-1);
+    }
+}
@@ -0,0 +1,62 @@
+package solve;
+
+import java.util.Random;
+
+import util.Vector;
+
+/**
+ * Starting points by Latin hypercube sampling in a box.
+ * <p>
+ * The points are generated by batches of "count" points: each side of
+ * the box is divided into count intervals of equal length, and each
+ * interval of each side contains exactly one point of the batch (at a
+ * random position). Compared to uniform random points, the projections
+ * of a batch on each axis are evenly spread.
+ */
+public class LatinHypercube extends BoxStarts {
+
+    private final Random random;
+    private final int count;    // number of points of a batch
+    private final int[][] perm; // perm[i][k]: interval of the k-th point on the axis i
+    private int k;              // index of the next point in the batch
+
+    /**
+     * @param count number of points of a batch
+     * @param seed  seed of the random generator
+     */
+    public LatinHypercube(Vector lo, Vector hi, int count, long seed) {
+        super(lo, hi);
+        assert (count > 0);
+        this.random = new Random(seed);
+        this.count = count;
+        this.perm = new int[lo.size()][count];
+        this.k = count;
+    }
+
+    @Override
+    protected void nextUnit() {
+        if (k == count) {
+            newBatch();
+            k = 0;
+        }
+        for (int i = 0; i < u.length; i++) {
+            u[i] = (perm[i][k] + random.nextDouble()) / count;
+        }
+        k++;
+    }
+
+    /*
+     * A random permutation of the intervals per axis (Fisher-Yates).
+     */
+    private void newBatch() {
+        for (int[] p : perm) {
+            for (int j = 0; j < p.length; j++) p[j] = j;
+            for (int j = p.length - 1; j > 0; j--) {
+                int r = random.nextInt(j + 1);
+                int tmp = p[j];
+                p[j] = p[r];
+                p[r] = tmp;
+            }
+        }
+    }
+}
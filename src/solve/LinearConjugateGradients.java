@@ -0,0 +1,135 @@
+package solve;
+
+import func.QuadraForm;
+import util.Vector;
+
+/**
+ * Linear (preconditioned) conjugate gradients for a quadratic form
+ * f(x) = 1/2 x^T Q x - b^T x, with Q symmetric positive definite.
+ * <p>
+ * Contrary to the non-linear variant (ConjugateGradients), no line search
+ * is needed: the optimal step along the direction p is r.z / p^T Q p (where
+ * r = b - Qx is the residual and z = M^{-1} r the preconditioned residual),
+ * so each iteration costs exactly one matrix-vector product. In exact
+ * arithmetic, the minimizer is reached in at most n iterations.
+ * <p>
+ * The iteration stops when ||r|| &lt;= tol*||b|| (tol*||r_0|| if b=0), with
+ * a relative tolerance tol (DEFAULT_TOLERANCE by default).
+ *
+ * @see Preconditioner
+ */
+public class LinearConjugateGradients extends Algorithm {
+
+    /**
+     * Default relative tolerance on the residual.
+     */
+    public final static double DEFAULT_TOLERANCE = 1e-12;
+
+    private QuadraForm f;
+    private Preconditioner M;
+
+    private Vector g; // gradient Q x - b (i.e., -r)
+    private Vector grad_view; // read-only view of g
+    private Vector z; // preconditioned gradient M^{-1} g
+    private Vector p; // direction
+    private Vector q; // Q p
+    private double rz; // <r, z> = <g, M^{-1} g>
+
+    private double tol = DEFAULT_TOLERANCE;
+    private double threshold; // tol*||b|| (or tol*||r_0||)
+
+    /**
+     * Build the algorithm for a quadratic form (without preconditioning).
+     */
+    public LinearConjugateGradients(QuadraForm f) {
+        this(f, null);
+    }
+
+    /**
+     * Build the algorithm for a quadratic form
+     * and a preconditioner of its matrix Q.
+     *
+     * @param f the function
+     * @param M the preconditioner (null means none)
+     */
+    public LinearConjugateGradients(QuadraForm f, Preconditioner M) {
+        this.f = f;
+        this.M = M;
+        int n = f.dim();
+        this.g = new Vector(n);
+        this.grad_view = g.readOnly();
+        this.z = M == null ? g : new Vector(n);
+        this.p = new Vector(n);
+        this.q = new Vector(n);
+    }
+
+    /**
+     * Set the relative tolerance on the residual.
+     */
+    public void setTolerance(double tol) {
+        this.tol = tol;
+    }
+
+    /**
+     * Get the relative tolerance on the residual.
+     */
+    public double getTolerance() {
+        return tol;
+    }
+
+    /**
+     * See Algorithm (the gradient is -r, known, no evaluation).
+     */
+    @Override
+    public Vector current_grad() {
+        return grad_view;
+    }
+
+    /**
+     * Start the iteration
+     */
+    public void start(Vector x0) {
+        super.start(x0);
+        f.evalWithGrad(iter_vec, g);
+        if (M != null) M.apply(g, z);
+        p.set(z);
+        p.scaleInPlace(-1);
+        rz = g.dot(z);
+        double b = f.getB().norm();
+        threshold = tol * (b > 0 ? b : g.norm());
+    }
+
+    /**
+     * Calculate the next iterate.
+     * <p>
+     * (update iter_vec).
+     */
+    public void compute_next() throws EndOfIteration {
+        if (rz == 0) {
+            if (log) System.out.println("[lincg] exit: residual=0.");
+            throw new EndOfIteration();
+        }
+
+        if (g.norm() <= threshold) {
+            if (log) System.out.println("[lincg] exit: residual <= " + tol + " (relative).");
+            throw new EndOfIteration();
+        }
+
+        f.Q.multInto(p, q);
+        double pQp = p.dot(q);
+
+        if (pQp <= 0) {
+            if (log) System.out.println("[lincg] abort: Q is not positive definite.");
+            throw new EndOfIteration();
+        }
+
+        double alpha = last_alpha = rz / pQp;
+        iter_vec.axpy(alpha, p);
+        g.axpy(alpha, q);
+        if (M != null) M.apply(g, z);
+
+        double rz1 = g.dot(z);
+        p.scaleInPlace(rz1 / rz).axpy(-1, z);
+        rz = rz1;
+    }
+}
@@ -0,0 +1,259 @@
+package solve;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import func.CountedFunc;
+import func.CountedTwiceDiffFunc;
+
+/**
+ * Metrics of an algorithm (see Algorithm.setMetrics): number of
+ * iterations and line search iterations, time spent in each phase and
+ * memory allocated.
+ * <p>
+ * The time of an iteration includes the time of its line search and the
+ * time to get the value and the gradient at the new iterate from the line
+ * search (LineSearch.resultWithGrad, which may evaluate f): the time spent
+ * computing the direction (and updating the iterate) is the difference.
+ * If the function is a CountedFunc, the number and the time of its
+ * evaluations (values, gradients, fused calls and, for a
+ * CountedTwiceDiffFunc, Hessians) are also reported.
+ * <p>
+ * Algorithms without metrics (the default) only pay a null check per
+ * iteration. With metrics, each iteration is also sent to Java Flight
+ * Recorder as a "solve.Iteration" event (when it is enabled in a
+ * recording, e.g., with -XX:StartFlightRecording).
+ * <p>
+ * The metrics are not thread-safe: they can be shared by an algorithm
+ * and its line search, not by algorithms running at the same time.
+ */
+public class Metrics {
+
+    /**
+     * JFR event of one iteration.
+     */
+    @jdk.jfr.Name("solve.Iteration")
+    @jdk.jfr.Label("Iteration")
+    @jdk.jfr.Category("Optimization")
+    static class IterationEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Algorithm")
+        String algorithm;
+
+        @jdk.jfr.Label("Iteration")
+        int iteration;
+
+        @jdk.jfr.Label("Value")
+        double value;
+
+        @jdk.jfr.Label("Duration")
+        @jdk.jfr.Timespan
+        long time;
+
+        @jdk.jfr.Label("Line Search Iterations")
+        long line_search_iterations;
+
+        @jdk.jfr.Label("Allocated")
+        @jdk.jfr.DataAmount
+        long allocated;
+    }
+
+    private final static com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final CountedFunc f; // may be null
+
+    private long iterations;
+    private long step_time;              // ns, including the line searches
+    private long line_searches;
+    private long line_search_iterations;
+    private long line_search_time;       // ns
+    private long result_time;            // ns, in LineSearch.resultWithGrad
+    private long allocated;              // bytes, -1 if not available
+    private long last_inner;             // line search iterations at the last iteration
+
+    /**
+     * Metrics without evaluation counts.
+     */
+    public Metrics() {
+        this(null);
+    }
+
+    /**
+     * Metrics including the evaluations of f.
+     */
+    public Metrics(CountedFunc f) {
+        this.f = f;
+        reset();
+    }
+
+    /**
+     * Reset the metrics (and the counters of f).
+     */
+    public void reset() {
+        iterations = 0;
+        step_time = 0;
+        line_searches = 0;
+        line_search_iterations = 0;
+        line_search_time = 0;
+        result_time = 0;
+        last_inner = 0;
+        allocated = THREADS == null ? -1 : 0;
+        if (f != null) f.reset();
+    }
+
+    /*
+     * An iteration of "a", which took "time" ns and allocated "bytes".
+     */
+    void iteration(Algorithm a, long time, long bytes) {
+        iterations++;
+        step_time += time;
+        if (allocated >= 0) allocated += bytes;
+
+        IterationEvent e = new IterationEvent();
+        if (e.isEnabled()) {
+            e.algorithm = a.getClass().getSimpleName();
+            e.iteration = a.current_iteration() + 1;
+            e.value = a.current_value();
+            e.time = time;
+            e.line_search_iterations = line_search_iterations - last_inner;
+            e.allocated = bytes;
+            e.commit();
+        }
+        last_inner = line_search_iterations;
+    }
+
+    /**
+     * Record the start of a line search.
+     */
+    public void lineSearch() {
+        line_searches++;
+    }
+
+    /**
+     * Record an iteration of a line search, which took "time" ns.
+     */
+    public void lineSearchIteration(long time) {
+        line_search_iterations++;
+        line_search_time += time;
+    }
+
+    /**
+     * Record a call to LineSearch.resultWithGrad, which took "time" ns.
+     */
+    public void lineSearchResult(long time) {
+        result_time += time;
+    }
+
+    /**
+     * @return the number of (outer) iterations, including the
+     * last attempt which ends the iteration (if any).
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the total time of the iterations (in ns).
+     */
+    public long getStepTime() {
+        return step_time;
+    }
+
+    /**
+     * @return the number of line searches.
+     */
+    public long getLineSearches() {
+        return line_searches;
+    }
+
+    /**
+     * @return the total number of line search iterations.
+     */
+    public long getLineSearchIterations() {
+        return line_search_iterations;
+    }
+
+    /**
+     * @return the time spent in the line searches (in ns).
+     */
+    public long getLineSearchTime() {
+        return line_search_time;
+    }
+
+    /**
+     * @return the time spent getting the value and the gradient
+     * at the end of the line searches (in ns).
+     */
+    public long getResultTime() {
+        return result_time;
+    }
+
+    /**
+     * @return the memory allocated by the iterations (in bytes),
+     * -1 if the JVM cannot measure it.
+     */
+    public long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * @return the metrics by name (times in ns), e.g. to be published
+     * in a metrics registry.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("iterations", iterations);
+        m.put("step.time", step_time);
+        m.put("direction.time", step_time - line_search_time - result_time);
+        m.put("line_search.count", line_searches);
+        m.put("line_search.iterations", line_search_iterations);
+        m.put("line_search.time", line_search_time);
+        m.put("line_search.result.time", result_time);
+        m.put("allocated", allocated);
+        if (f != null) {
+            m.put("f.evaluations", f.getEvaluations());
+            m.put("f.gradients", f.getGradients());
+            m.put("f.fused", f.getFusedEvaluations());
+            m.put("f.eval.time", f.getEvalTime());
+            m.put("f.grad.time", f.getGradTime());
+            m.put("f.fused.time", f.getFusedTime());
+        }
+        if (f instanceof CountedTwiceDiffFunc) {
+            CountedTwiceDiffFunc h = (CountedTwiceDiffFunc) f;
+            m.put("f.hessians", h.getHessians());
+            m.put("f.hess_vecs", h.getHessVecs());
+            m.put("f.hessian.time", h.getHessianTime());
+            m.put("f.hess_vec.time", h.getHessVecTime());
+        }
+        return m;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (Map.Entry<String, Long> e : snapshot().entrySet()) {
+            if (s.length() > 0) s.append(", ");
+            s.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return s.toString();
+    }
+
+    /*
+     * Memory allocated so far by the current thread (0 if not available).
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean) bean;
+                if (t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled()) return t;
+            }
+        } catch (LinkageError e) {
+            // module jdk.management not available
+        }
+        return null;
+    }
+}
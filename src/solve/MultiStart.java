@@ -0,0 +1,239 @@
+package solve;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import func.RealFunc;
+import util.Vector;
+
+/**
+ * Multi-start driver: runs a local search algorithm from many starting
+ * points, concurrently, and keeps the best result.
+ * <p>
+ * Each run gets its own algorithm (built by the factory, so that no
+ * workspace is shared) and an iteration budget. The runs are executed
+ * in a bounded pool (by default, one thread per core).
+ * <p>
+ * Every CHECK_PERIOD iterations, a run compares f at its current iterate
+ * with the best value known so far (by all the runs). A run is pruned if
+ * it is behind by more than a relative margin and if, at its current rate
+ * of decrease, it could not catch up within its remaining budget.
+ * <p>
+ * The function f is evaluated concurrently by the runs: it (and the
+ * functions used by the algorithms) must support concurrent calls.
+ */
+public class MultiStart {
+
+    /**
+     * Default iteration budget of a run.
+     */
+    public final static int DEFAULT_BUDGET = 1000;
+
+    /**
+     * Default relative margin for pruning.
+     */
+    public final static double DEFAULT_MARGIN = 0.1;
+
+    /**
+     * Number of iterations between two checks of a run.
+     */
+    public final static int CHECK_PERIOD = 10;
+
+    /**
+     * Result of one run.
+     */
+    public static class Run {
+        public final Vector start;
+        public final Vector end;
+        public final double value; // f(end)
+        public final int iterations;
+        public final boolean pruned;
+
+        Run(Vector start, Vector end, double value, int iterations, boolean pruned) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.iterations = iterations;
+            this.pruned = pruned;
+        }
+    }
+
+    /**
+     * Result of the multi-start: the best run and all the runs.
+     */
+    public static class Result {
+        public final Run best;
+        public final List<Run> runs;
+        public final long time; // wall-clock time (ms)
+
+        Result(Run best, List<Run> runs, long time) {
+            this.best = best;
+            this.runs = runs;
+            this.time = time;
+        }
+
+        /**
+         * @return the number of pruned runs.
+         */
+        public int pruned() {
+            return (int) runs.stream().filter(r -> r.pruned).count();
+        }
+
+        /**
+         * @return the total number of iterations of all the runs.
+         */
+        public long iterations() {
+            return runs.stream().mapToLong(r -> r.iterations).sum();
+        }
+
+        /**
+         * Summary of the multi-start.
+         */
+        public String toString() {
+            return "best f=" + best.value + " at " + best.end
+                + "\n" + runs.size() + " runs (" + pruned() + " pruned), "
+                + iterations() + " iterations, " + time + " ms";
+        }
+    }
+
+    private final RealFunc f;
+    private final Supplier<Algorithm> factory;
+    private final StartGenerator starts;
+
+    private int budget = DEFAULT_BUDGET;
+    private double margin = DEFAULT_MARGIN;
+    private ExecutorService executor; // null: a pool is created for each call to "run"
+
+    private double best_value; // best value known by the runs
+
+    /**
+     * Build the driver.
+     *
+     * @param f       the function (to compare the runs)
+     * @param factory builds a new algorithm for each run
+     * @param starts  the generator of starting points
+     */
+    public MultiStart(RealFunc f, Supplier<Algorithm> factory, StartGenerator starts) {
+        this.f = f;
+        this.factory = factory;
+        this.starts = starts;
+    }
+
+    /**
+     * Set the iteration budget of each run.
+     */
+    public void setBudget(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Set the relative margin for pruning (+infinity means no pruning).
+     */
+    public void setMargin(double margin) {
+        this.margin = margin;
+    }
+
+    /**
+     * Set the executor of the runs. By default, a pool of one thread
+     * per core is created (and shut down) by each call to "run".
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Run the algorithm from nb_starts starting points.
+     *
+     * @throws IllegalArgumentException if nb_starts &lt;= 0
+     */
+    public Result run(int nb_starts) {
+        if (nb_starts <= 0) throw new IllegalArgumentException("number of starts must be positive: " + nb_starts);
+        long time = System.currentTimeMillis();
+        best_value = Double.POSITIVE_INFINITY;
+
+        ExecutorService pool = executor != null ? executor
+            : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        List<Run> runs = new ArrayList<>(nb_starts);
+        try {
+            List<Future<Run>> futures = new ArrayList<>(nb_starts);
+            for (int k = 0; k < nb_starts; k++) {
+                futures.add(pool.submit(task(starts.next())));
+            }
+            for (Future<Run> future : futures) {
+                runs.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted during the multi-start", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (executor == null) pool.shutdownNow();
+        }
+
+        Run best = runs.get(0);
+        for (Run r : runs) {
+            if (r.value < best.value) best = r;
+        }
+        return new Result(best, runs, System.currentTimeMillis() - time);
+    }
+
+    /*
+     * One run from x0.
+     */
+    private Callable<Run> task(Vector x0) {
+        return () -> {
+            Algorithm algo = factory.get();
+            algo.setMaxIteration(budget);
+            algo.start(x0);
+
+            double last = Double.POSITIVE_INFINITY; // value at the last check
+            boolean pruned = false;
+
+            while (algo.advance()) {
+                int it = algo.current_iteration();
+                if (it % CHECK_PERIOD != 0) continue;
+
+                double value = valueOf(algo);
+                double best = offer(value);
+                double gap = value - best;
+                double rate = (last - value) / CHECK_PERIOD; // decrease per iteration
+                if (gap > margin * (1 + Math.abs(best)) && rate * (budget - it) < gap) {
+                    pruned = true;
+                    break;
+                }
+                last = value;
+            }
+
+            Vector x = algo.current_vector();
+            double value = valueOf(algo);
+            offer(value);
+            return new Run(x0, x, value, algo.current_iteration(), pruned);
+        };
+    }
+
+    /*
+     * Value at the current iterate of algo, evaluated only
+     * if the algorithm does not know it.
+     */
+    private double valueOf(Algorithm algo) {
+        double value = algo.current_value();
+        return Double.isNaN(value) ? f.eval(algo.current_view()) : value;
+    }
+
+    /*
+     * Update the best known value and return it.
+     */
+    private synchronized double offer(double value) {
+        if (value < best_value) best_value = value;
+        return best_value;
+    }
+}
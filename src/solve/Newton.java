@@ -0,0 +1,247 @@
+package solve;
+
+import func.TwiceDiffFunc;
+import line.LineSearch;
+import util.CholeskyDecomposition;
+import util.Matrix;
+import util.RealMatrix;
+import util.Singularity;
+import util.Vector;
+
+/**
+ * Newton's method.
+ * <p>
+ * The direction d solves the Newton system H d = -grad, where H is the
+ * Hessian of f at the current iterate, and is followed by a line search
+ * (the unit step being the natural one, StrongWolfe is well suited).
+ * Near a minimizer where the Hessian is positive definite, the
+ * convergence is quadratic.
+ * <p>
+ * The Newton system is solved either
+ * <ul>
+ * <li>directly: H is factorized by Cholesky, in O(n^3) per iteration. If H is
+ * not positive definite, a multiple of the identity is added to H until it
+ * is, so that d is still a descent direction.
+ * <li>approximately, by truncated Newton-CG: conjugate gradients on the
+ * system, which only need Hessian-vector products (the Hessian is never
+ * built). The inner iteration stops when the residual is less than
+ * min(0.5, sqrt(||grad||))*||grad|| (which preserves the superlinear
+ * convergence) or when a direction of negative curvature is met.
+ * </ul>
+ * By default, the direct solve is used up to dimension DIRECT_MAX_DIM.
+ *
+ * @see "J. Nocedal and S. Wright, Numerical Optimization, algorithms 3.3 and 7.1"
+ */
+public class Newton extends Algorithm {
+
+    /**
+     * Maximal dimension for the direct solve of the Newton system
+     * (see the default constructor).
+     */
+    public final static int DIRECT_MAX_DIM = 500;
+
+    /**
+     * First multiple of the identity added to a Hessian
+     * which is not positive definite (then doubled).
+     */
+    private final static double SHIFT_MIN = 1e-3;
+    private final static int MAX_SHIFT = 100;
+
+    private TwiceDiffFunc f;
+    private LineSearch s;
+    private final boolean direct;
+
+    private double value; // value at the current iterate
+    private Vector grad;  // gradient at the current iterate
+    private Vector grad_view; // read-only view of grad
+    private Vector dir;   // direction
+
+    // Newton-CG workspaces
+    private Vector r;     // residual H*dir + grad
+    private Vector p;     // direction of the inner CG
+    private Vector hp;    // H*p
+
+    /**
+     * Build the algorithm for a given function and with an underlying line
+     * search technique. The Newton system is solved directly if the
+     * dimension is at most DIRECT_MAX_DIM, by Newton-CG otherwise.
+     *
+     * @param f the function
+     * @param s the line search algorithm
+     */
+    public Newton(TwiceDiffFunc f, LineSearch s) {
+        this(f, s, f.dim() <= DIRECT_MAX_DIM);
+    }
+
+    /**
+     * Build the algorithm for a given function and
+     * with an underlying line search technique.
+     *
+     * @param f      the function
+     * @param s      the line search algorithm
+     * @param direct true for the direct solve of the Newton system,
+     *               false for truncated Newton-CG
+     */
+    public Newton(TwiceDiffFunc f, LineSearch s, boolean direct) {
+        this.f = f;
+        this.s = s;
+        this.direct = direct;
+        int n = f.dim();
+        this.grad = new Vector(n);
+        this.grad_view = grad.readOnly();
+        this.dir = new Vector(n);
+        if (!direct) {
+            this.r = new Vector(n);
+            this.p = new Vector(n);
+            this.hp = new Vector(n);
+        }
+    }
+
+    /**
+     * The token is also polled by the line search.
+     */
+    @Override
+    public void setCancellation(Cancellation c, int period) {
+        super.setCancellation(c, period);
+        s.setCancellation(c);
+    }
+
+    /**
+     * The line search updates the same metrics.
+     */
+    @Override
+    public void setMetrics(Metrics m) {
+        super.setMetrics(m);
+        s.setMetrics(m);
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public double current_value() {
+        return value;
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public Vector current_grad() {
+        return grad_view;
+    }
+
+    /**
+     * Start the iteration
+     */
+    public void start(Vector x0) {
+        super.start(x0);
+        value = f.evalWithGrad(iter_vec, grad);
+    }
+
+    /**
+     * Calculate the next iterate.
+     * <p>
+     * (update iter_vec).
+     */
+    public void compute_next() throws EndOfIteration {
+        if (grad.norm2() == 0) {
+            if (log) System.out.println("[newton] exit: gradient=0.");
+            throw new EndOfIteration();
+        }
+
+        if (direct) {
+            directDirection();
+        } else {
+            truncatedDirection();
+        }
+
+        double alpha = last_alpha = s.search(iter_vec, dir, value, grad);
+        if (alpha == 0) {
+            // null step (e.g., cancelled line search): the iterate is kept, no update
+            if (log) System.out.println("[newton] exit: null step.");
+            throw new EndOfIteration();
+        }
+        value = s.resultWithGrad(grad); // before iter_vec is moved
+        iter_vec.axpy(alpha, dir);
+    }
+
+    /*
+     * dir := -(H+tau*I)^{-1} grad, with tau=0 if H is positive definite.
+     */
+    private void directDirection() throws EndOfIteration {
+        Matrix H = dense(f.hessian(iter_vec));
+        int n = f.dim();
+        double tau = 0;
+
+        for (int k = 0; k < MAX_SHIFT; k++) {
+            Matrix A = H;
+            if (tau > 0) {
+                A = new Matrix(H);
+                for (int i = 0; i < n; i++) A.set(i, i, H.get(i, i) + tau);
+            }
+            try {
+                new CholeskyDecomposition(A).solveInto(grad, dir);
+                dir.scaleInPlace(-1);
+                return;
+            } catch (Singularity e) {
+                tau = Math.max(2 * tau, SHIFT_MIN);
+                if (log) System.out.println("[newton] warning: Hessian not positive definite, shifted by " + tau + ".");
+            }
+        }
+
+        if (log) System.out.println("[newton] abort: Hessian cannot be made positive definite.");
+        throw new EndOfIteration();
+    }
+
+    /*
+     * dir := approximate solution of H*dir = -grad by conjugate gradients.
+     */
+    private void truncatedDirection() {
+        double grad_norm = grad.norm();
+        double tol = Math.min(0.5, Math.sqrt(grad_norm)) * grad_norm;
+
+        dir.fill(0); // (not scaleInPlace(0): NaN*0 is NaN)
+        r.set(grad);
+        p.set(grad);
+        p.scaleInPlace(-1);
+        double rr = r.norm2();
+
+        for (int j = 0; j < f.dim(); j++) {
+            f.hessVec(iter_vec, p, hp);
+            double pHp = p.dot(hp);
+
+            if (pHp <= 0) {
+                // negative curvature: keep the current direction
+                // (the steepest descent one, at the first step)
+                if (log) System.out.println("[newton] warning: negative curvature in Newton-CG.");
+                if (j == 0) dir.set(p);
+                return;
+            }
+
+            double a = rr / pHp;
+            dir.axpy(a, p);
+            r.axpy(a, hp);
+
+            double rr1 = r.norm2();
+            if (Math.sqrt(rr1) < tol) return;
+
+            p.scaleInPlace(rr1 / rr).axpy(-1, r);
+            rr = rr1;
+        }
+    }
+
+    /*
+     * H as a dense matrix.
+     */
+    private static Matrix dense(RealMatrix H) {
+        if (H instanceof Matrix) return (Matrix) H;
+        int n = H.nb_rows();
+        Matrix M = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            final int row = i;
+            H.forEachInRow(i, (j, d) -> M.set(row, j, d));
+        }
+        return M;
+    }
+}
@@ -0,0 +1,17 @@
+package solve;
+
+import util.Vector;
+
+/**
+ * Preconditioner M of a symmetric positive definite matrix Q
+ * (M is an approximation of Q that is cheap to invert).
+ *
+ * @see LinearConjugateGradients
+ */
+public interface Preconditioner {
+
+    /**
+     * z := M^{-1} r (no allocation). z and r must be different vectors.
+     */
+    void apply(Vector r, Vector z);
+}
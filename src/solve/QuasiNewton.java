@@ -1,12 +1,154 @@
 package solve;
 
+import func.RealFunc;
+import line.LineSearch;
+import util.Matrix;
+import util.Vector;
+
+/**
+ * Quasi-Newton method with the BFGS update.
+ * <p>
+ * An approximation H of the inverse of the Hessian is maintained. The
+ * direction is d=-H*grad, and after each step s=x_{k+1}-x_k, with
+ * y=grad_{k+1}-grad_k, H is updated by
+ * <pre>
+ *   H := (I - rho*s*y^T) H (I - rho*y*s^T) + rho*s*s^T    (rho=1/(s^T y))
+ * </pre>
+ * which is expanded as three rank-one updates of H in place, so
+ * an iteration costs O(n^2) and allocates no matrix (H is also
+ * reset and scaled in place).
+ */
 public class QuasiNewton extends Algorithm {
-    public QuasiNewton() {
+    private RealFunc f;
+    private LineSearch s;
+
+    private Matrix H;      // approximation of the inverse Hessian
+    private boolean first; // true until the first update of H
+    private double value;  // value at the current iterate
+    private Vector grad;   // gradient at the current iterate
+    private Vector grad_view; // read-only view of grad
+    private Vector dir;    // direction
+    private Vector step;   // s = x_{k+1} - x_k
+    private Vector diff;   // y = grad_{k+1} - grad_k
+    private Vector hy;     // H*y
+
+    /**
+     * Build the algorithm for a given function and
+     * with an underlying line search technique.
+     *
+     * @param f the function
+     * @param s the line search algorithm
+     */
+    public QuasiNewton(RealFunc f, LineSearch s) {
         super();
+        this.f = f;
+        this.s = s;
+        int n = f.dim();
+        this.grad = new Vector(n);
+        this.grad_view = grad.readOnly();
+        this.dir = new Vector(n);
+        this.step = new Vector(n);
+        this.diff = new Vector(n);
+        this.hy = new Vector(n);
+        this.H = new Matrix(n, n);
+    }
+
+    /**
+     * The token is also polled by the line search.
+     */
+    @Override
+    public void setCancellation(Cancellation c, int period) {
+        super.setCancellation(c, period);
+        s.setCancellation(c);
+    }
+
+    /**
+     * The line search updates the same metrics.
+     */
+    @Override
+    public void setMetrics(Metrics m) {
+        super.setMetrics(m);
+        s.setMetrics(m);
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public double current_value() {
+        return value;
     }
 
+    /**
+     * See Algorithm (known, no evaluation).
+     */
     @Override
-    protected void compute_next() throws EndOfIteration {
+    public Vector current_grad() {
+        return grad_view;
+    }
+
+    /**
+     * Start the iteration
+     */
+    public void start(Vector x0) {
+        super.start(x0);
+        H.setIdentity(1);
+        this.first = true;
+        value = f.evalWithGrad(iter_vec, grad);
+    }
+
+    /**
+     * Calculate the next iterate.
+     * <p>
+     * (update iter_vec).
+     */
+    public void compute_next() throws EndOfIteration {
+        H.multInto(grad, dir);
+        dir.scaleInPlace(-1);
+
+        if (dir.dot(grad) >= 0) {
+            // H is no longer positive definite (rounding errors): restart
+            if (log) System.out.println("[bfgs] warning: not a descent direction, H reset to identity.");
+            H.setIdentity(1);
+            first = true;
+            dir.set(grad);
+            dir.scaleInPlace(-1);
+        }
+
+        double alpha = last_alpha = s.search(iter_vec, dir, value, grad);
+        if (alpha == 0) {
+            // null step (e.g., cancelled line search): the iterate is kept, no update
+            if (log) System.out.println("[bfgs] exit: null step.");
+            throw new EndOfIteration();
+        }
+
+        diff.set(grad);
+        value = s.resultWithGrad(grad); // before iter_vec is moved
+        grad.subInto(diff, diff);
+
+        step.set(dir);
+        step.scaleInPlace(alpha);
+        iter_vec.axpy(1, step);
+
+        double sy = step.dot(diff);
+        if (sy <= 0) {
+            // curvature condition not satisfied: H would not be positive definite
+            if (log) System.out.println("[bfgs] warning: s^T y<=0, update skipped.");
+            return;
+        }
+
+        if (first) {
+            // scale H0 so that its size matches the curvature along s
+            H.setIdentity(sy / diff.norm2());
+            first = false;
+        }
+
+        double rho = 1 / sy;
+        H.multInto(diff, hy);
+        double yHy = diff.dot(hy);
 
+        H.rank1Update(-rho, step, hy);
+        H.rank1Update(-rho, hy, step);
+        H.rank1Update(rho * rho * yHy + rho, step, step);
     }
 }
@@ -0,0 +1,26 @@
+package solve;
+
+import java.util.Random;
+
+import util.Vector;
+
+/**
+ * Starting points drawn uniformly at random in a box.
+ */
+public class RandomStarts extends BoxStarts {
+
+    private final Random random;
+
+    /**
+     * @param seed seed of the random generator
+     */
+    public RandomStarts(Vector lo, Vector hi, long seed) {
+        super(lo, hi);
+        this.random = new Random(seed);
+    }
+
+    @Override
+    protected void nextUnit() {
+        for (int i = 0; i < u.length; i++) u[i] = random.nextDouble();
+    }
+}
@@ -0,0 +1,88 @@
+package solve;
+
+import util.RealMatrix;
+import util.Vector;
+
+import java.util.Arrays;
+
+/**
+ * Symmetric successive over-relaxation (SSOR) preconditioner:
+ * <pre>
+ *   M = w/(2-w) (D/w + L) (D/w)^{-1} (D/w + L^T)
+ * </pre>
+ * where Q = L + D + L^T (D diagonal, L strictly lower triangular)
+ * and w in (0,2) is the relaxation factor.
+ * <p>
+ * Applying M^{-1} costs a forward and a backward triangular
+ * sweep, i.e., about one product by Q.
+ */
+public class SSORPreconditioner implements Preconditioner {
+
+    public final static double DEFAULT_OMEGA = 1.0;
+
+    private final int n;
+    private final double omega;
+    private final double[] diag; // D/w
+    // strictly lower triangle of Q in CSR format
+    private final int[] ptr;
+    private int[] idx;
+    private double[] val;
+
+    /**
+     * Build the preconditioner of Q with w=1 (symmetric Gauss-Seidel).
+     */
+    public SSORPreconditioner(RealMatrix Q) {
+        this(Q, DEFAULT_OMEGA);
+    }
+
+    /**
+     * Build the preconditioner of Q with the relaxation factor omega.
+     */
+    public SSORPreconditioner(RealMatrix Q, double omega) {
+        assert (omega > 0 && omega < 2);
+        this.n = Q.nb_rows();
+        this.omega = omega;
+        this.diag = new double[n];
+        this.ptr = new int[n + 1];
+        this.idx = new int[n];
+        this.val = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            final int row = i;
+            Q.forEachInRow(i, (j, d) -> {
+                if (j == row) {
+                    diag[row] = d / omega;
+                } else if (j < row) {
+                    int k = ptr[row + 1]++;
+                    if (k == idx.length) {
+                        idx = Arrays.copyOf(idx, 2 * k);
+                        val = Arrays.copyOf(val, 2 * k);
+                    }
+                    idx[k] = j;
+                    val[k] = d;
+                }
+            });
+            assert (diag[i] > 0);
+            if (i + 1 < n) ptr[i + 2] = ptr[i + 1];
+        }
+    }
+
+    @Override
+    public void apply(Vector r, Vector z) {
+        // solve (D/w + L) y = r
+        for (int i = 0; i < n; i++) {
+            double s = r.get(i);
+            for (int k = ptr[i]; k < ptr[i + 1]; k++) s -= val[k] * z.get(idx[k]);
+            z.set(i, s / diag[i]);
+        }
+        // y := (D/w) y
+        for (int i = 0; i < n; i++) z.set(i, z.get(i) * diag[i]);
+        // solve (D/w + L^T) z = y (column-oriented, since L^T is stored by rows of L)
+        for (int i = n - 1; i >= 0; i--) {
+            double zi = z.get(i) / diag[i];
+            z.set(i, zi);
+            for (int k = ptr[i]; k < ptr[i + 1]; k++) z.set(idx[k], z.get(idx[k]) - val[k] * zi);
+        }
+        z.scaleInPlace((2 - omega) / omega);
+    }
+}
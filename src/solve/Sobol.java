@@ -0,0 +1,89 @@
+package solve;
+
+import util.Vector;
+
+/**
+ * Starting points from the Sobol low-discrepancy sequence in a box.
+ * <p>
+ * The points fill the box much more evenly than random ones: the first
+ * 2^k points of the sequence contain (but for the origin, which is
+ * skipped) exactly one point in each of the 2^k intervals of equal
+ * length on every axis. Points are generated in Gray code order, one
+ * xor per coordinate.
+ * <p>
+ * The direction numbers of the first MAX_DIM dimensions are embedded.
+ *
+ * @see "S. Joe and F. Y. Kuo, Constructing Sobol sequences with better two-dimensional projections, SIAM J. Sci. Comput. 30, 2008"
+ */
+public class Sobol extends BoxStarts {
+
+    /**
+     * Maximal dimension.
+     */
+    public final static int MAX_DIM = 16;
+
+    private final static int BITS = 31;
+
+    /*
+     * Joe-Kuo direction numbers of the dimensions 2..MAX_DIM:
+     * degree s of the primitive polynomial, its coefficients a, m_1..m_s.
+     */
+    private final static int[][] DIRECTIONS = {
+        {1, 0, 1},
+        {2, 1, 1, 3},
+        {3, 1, 1, 3, 1},
+        {3, 2, 1, 1, 1},
+        {4, 1, 1, 1, 3, 3},
+        {4, 4, 1, 3, 5, 13},
+        {5, 2, 1, 1, 5, 5, 17},
+        {5, 4, 1, 1, 5, 5, 5},
+        {5, 7, 1, 1, 7, 11, 19},
+        {5, 11, 1, 1, 5, 1, 1},
+        {5, 13, 1, 1, 1, 3, 11},
+        {5, 14, 1, 3, 5, 5, 31},
+        {6, 1, 1, 3, 3, 9, 7, 49},
+        {6, 13, 1, 1, 1, 15, 21, 21},
+        {6, 16, 1, 3, 1, 13, 27, 49}
+    };
+
+    private final int[][] v; // v[i][k]: k-th direction number of the dimension i
+    private final int[] x;    // current point (scaled by 2^BITS)
+    private int index;        // index of the current point
+
+    public Sobol(Vector lo, Vector hi) {
+        super(lo, hi);
+        int d = lo.size();
+        if (d > MAX_DIM) throw new IllegalArgumentException("dimension must be at most " + MAX_DIM + ": " + d);
+        this.v = new int[d][BITS + 1];
+        this.x = new int[d];
+
+        for (int k = 1; k <= BITS; k++) {
+            v[0][k] = 1 << (BITS - k);
+        }
+        for (int i = 1; i < d; i++) {
+            int[] dir = DIRECTIONS[i - 1];
+            int s = dir[0], a = dir[1];
+            for (int k = 1; k <= s && k <= BITS; k++) {
+                v[i][k] = dir[k + 1] << (BITS - k);
+            }
+            for (int k = s + 1; k <= BITS; k++) {
+                v[i][k] = v[i][k - s] ^ (v[i][k - s] >> s);
+                for (int j = 1; j < s; j++) {
+                    if (((a >> (s - 1 - j)) & 1) != 0) v[i][k] ^= v[i][k - j];
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void nextUnit() {
+        // c = position (from 1) of the rightmost zero bit of index
+        int c = Integer.numberOfTrailingZeros(~index) + 1;
+        assert (c <= BITS);
+        index++;
+        for (int i = 0; i < x.length; i++) {
+            x[i] ^= v[i][c];
+            u[i] = x[i] / (double) (1L << BITS);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package solve;
+
+import util.Vector;
+
+/**
+ * Generator of starting points (see MultiStart).
+ */
+public interface StartGenerator {
+
+    /**
+     * @return the next starting point (a new vector).
+     */
+    Vector next();
+}
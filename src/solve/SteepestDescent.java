@@ -17,6 +17,18 @@ public class SteepestDescent extends Algorithm {
     private LineSearch s;
     private Dichotomy dicho;
 
+    /**
+     * Workspace for the descent direction (-grad)
+     */
+    private Vector dir;
+
+    /**
+     * Value and gradient of f at the current iterate
+     */
+    private double value;
+    private Vector grad;
+    private Vector grad_view; // read-only view of grad
+
     /**
      * Build the algorithm
      *
@@ -27,6 +39,51 @@ public class SteepestDescent extends Algorithm {
         this.f = f;
         this.s = s;
         this.dicho = new Dichotomy(f);
+        this.dir = new Vector(f.dim());
+        this.grad = new Vector(f.dim());
+        this.grad_view = grad.readOnly();
+    }
+
+    /**
+     * The token is also polled by the line search.
+     */
+    @Override
+    public void setCancellation(Cancellation c, int period) {
+        super.setCancellation(c, period);
+        s.setCancellation(c);
+    }
+
+    /**
+     * The line search updates the same metrics.
+     */
+    @Override
+    public void setMetrics(Metrics m) {
+        super.setMetrics(m);
+        s.setMetrics(m);
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public double current_value() {
+        return value;
+    }
+
+    /**
+     * See Algorithm (known, no evaluation).
+     */
+    @Override
+    public Vector current_grad() {
+        return grad_view;
+    }
+
+    /**
+     * Start the iteration
+     */
+    public void start(Vector x0) {
+        super.start(x0);
+        value = f.evalWithGrad(iter_vec, grad);
     }
 
 
@@ -34,8 +91,16 @@ public class SteepestDescent extends Algorithm {
      * Calculate the next iterate.
      */
     public void compute_next() throws EndOfIteration {
-        Vector grad = f.grad(iter_vec);
-        iter_vec = iter_vec.sub(grad.leftmul(s.search(iter_vec, grad.minus())));
+        dir.set(grad);
+        dir.scaleInPlace(-1);
+        double alpha = last_alpha = s.search(iter_vec, dir, value, grad);
+        if (alpha == 0) {
+            // null step (e.g., cancelled line search): the iterate is kept, no update
+            if (log) System.out.println("[descent] exit: null step.");
+            throw new EndOfIteration();
+        }
+        value = s.resultWithGrad(grad); // before iter_vec is moved
+        iter_vec.axpy(alpha, dir);
     }
 
 }
@@ -0,0 +1,184 @@
+package solve;
+
+import java.util.function.LongSupplier;
+
+import util.Vector;
+
+/**
+ * Stop criterion of an algorithm (see Algorithm.addStopCriterion).
+ * <p>
+ * A criterion is tested after each iteration. It only uses what the
+ * algorithm already knows (current_value, current_grad, step_norm...),
+ * so that testing it costs no evaluation of the function: a criterion
+ * based on information the algorithm does not have (e.g., the value of
+ * f for the linear conjugate gradients) never fires.
+ * <p>
+ * Some criteria have a state (e.g., the previous value of f), which is
+ * reinitialized by "reset" when the algorithm starts: a criterion must
+ * not be shared by algorithms running at the same time.
+ */
+public interface StopCriterion {
+
+    /**
+     * @return true iff the algorithm must stop.
+     */
+    boolean test(Algorithm a);
+
+    /**
+     * Called when the algorithm starts.
+     */
+    default void reset(Algorithm a) {
+    }
+
+    /**
+     * Stop when the norm of the gradient is less than tol.
+     */
+    static StopCriterion gradientNorm(double tol) {
+        return new StopCriterion() {
+            public boolean test(Algorithm a) {
+                Vector g = a.current_grad();
+                return g != null && g.norm() < tol;
+            }
+
+            public String toString() {
+                return "gradient norm < " + tol;
+            }
+        };
+    }
+
+    /**
+     * Stop when f decreases by less than abs + rel*|f| in one iteration.
+     */
+    static StopCriterion valueDecrease(double abs, double rel) {
+        return new StopCriterion() {
+            private double last;
+
+            public void reset(Algorithm a) {
+                last = a.current_value();
+            }
+
+            public boolean test(Algorithm a) {
+                double value = a.current_value();
+                boolean stop = last - value <= abs + rel * Math.abs(last);
+                last = value;
+                return stop; // false if a value is unknown (NaN)
+            }
+
+            public String toString() {
+                return "decrease of f < " + abs + " + " + rel + "*|f|";
+            }
+        };
+    }
+
+    /**
+     * Stop when the norm of the step is less than tol.
+     */
+    static StopCriterion stepNorm(double tol) {
+        return new StopCriterion() {
+            public boolean test(Algorithm a) {
+                return a.step_norm() < tol;
+            }
+
+            public String toString() {
+                return "step norm < " + tol;
+            }
+        };
+    }
+
+    /**
+     * Stop when the time since the start exceeds ms milliseconds.
+     */
+    static StopCriterion wallClock(long ms) {
+        return new StopCriterion() {
+            public boolean test(Algorithm a) {
+                return a.elapsed_time() >= ms;
+            }
+
+            public String toString() {
+                return "time >= " + ms + " ms";
+            }
+        };
+    }
+
+    /**
+     * Stop when more than max evaluations have been made since the start.
+     *
+     * @param counter the number of evaluations so far (e.g., CachedFunc::getMisses)
+     */
+    static StopCriterion evaluations(LongSupplier counter, long max) {
+        return new StopCriterion() {
+            private long first;
+
+            public void reset(Algorithm a) {
+                first = counter.getAsLong();
+            }
+
+            public boolean test(Algorithm a) {
+                return counter.getAsLong() - first >= max;
+            }
+
+            public String toString() {
+                return "evaluations >= " + max;
+            }
+        };
+    }
+
+    /**
+     * Stop when the best value of f has not decreased by more than
+     * rel*(1+|f|) during the last "window" iterations.
+     */
+    static StopCriterion stagnation(int window, double rel) {
+        return new StopCriterion() {
+            private double best;  // best value
+            private int since;    // iterations since the last significant decrease
+
+            public void reset(Algorithm a) {
+                best = a.current_value();
+                since = 0;
+            }
+
+            public boolean test(Algorithm a) {
+                double value = a.current_value();
+                if (Double.isNaN(value)) return false;
+                if (Double.isNaN(best) || best - value > rel * (1 + Math.abs(best))) {
+                    best = value;
+                    since = 0;
+                    return false;
+                }
+                return ++since >= window;
+            }
+
+            public String toString() {
+                return "no decrease of f for " + window + " iterations";
+            }
+        };
+    }
+
+    /**
+     * Stop when all the criteria fire at the same iteration.
+     */
+    static StopCriterion all(StopCriterion... criteria) {
+        return new StopCriterion() {
+            public void reset(Algorithm a) {
+                for (StopCriterion c : criteria) c.reset(a);
+            }
+
+            public boolean test(Algorithm a) {
+                boolean stop = true;
+                for (StopCriterion c : criteria) {
+                    stop &= c.test(a); // all tested (states updated)
+                }
+                return stop;
+            }
+
+            public String toString() {
+                StringBuilder s = new StringBuilder();
+                for (StopCriterion c : criteria) {
+                    if (s.length() > 0) s.append(" and ");
+                    s.append(c);
+                }
+                return s.toString();
+            }
+        };
+    }
+}
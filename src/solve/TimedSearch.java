@@ -0,0 +1,199 @@
+package solve;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import util.Vector;
+
+/**
+ * Runs an algorithm on an executor, with a time limit.
+ * <p>
+ * The limit is enforced cooperatively (see Cancellation): when it is
+ * reached, the algorithm stops at the end of its current iteration and
+ * the best iterate found so far is returned, instead of an exception.
+ * The thread is then given back to the executor, so a pool of virtual
+ * threads (Java 21) suits many concurrent searches as well as a bounded
+ * pool. By default, each search runs in its own thread, so that it does
+ * not hold a worker of the common fork-join pool (used by Parallel).
+ * <p>
+ * An evaluation of f in progress is not interrupted: if the search has
+ * not stopped "grace" milliseconds after the deadline, "run" returns the
+ * best iterate known at that time, and the algorithm stops (in the
+ * background) when the evaluation is over. Until then, the algorithm is
+ * still in use: another search cannot be started (IllegalStateException,
+ * see isBusy) and the algorithm must not be used directly. An algorithm
+ * must be run by a single TimedSearch.
+ */
+public class TimedSearch {
+
+    /**
+     * Default time given to the search to stop after its deadline (ms).
+     */
+    public final static long DEFAULT_GRACE = 1000;
+
+    /**
+     * Result of a search.
+     */
+    public static class Result {
+        public final Vector x;        // best iterate
+        public final double value;    // f(x), NaN if unknown by the algorithm
+        public final int iterations;
+        public final boolean timed_out;
+        public final String stop_reason;
+
+        Result(Vector x, double value, int iterations, boolean timed_out, String stop_reason) {
+            this.x = x;
+            this.value = value;
+            this.iterations = iterations;
+            this.timed_out = timed_out;
+            this.stop_reason = stop_reason;
+        }
+
+        public String toString() {
+            return "f=" + value + " at " + x + " after " + iterations
+                + " iterations (" + stop_reason + ")";
+        }
+    }
+
+    /*
+     * Best iterate of a search, shared with the caller of "run"
+     * (who may read it before the search is over).
+     */
+    private static class Progress {
+        private Vector best;
+        private double value;
+        private int iterations;
+
+        synchronized void offer(Algorithm a) {
+            double v = a.current_value();
+            if (best == null) {
+                best = a.current_vector();
+            } else if (Double.isNaN(v) || !(v > value)) {
+                best.set(a.current_view());
+            } else {
+                v = value;
+            }
+            value = v;
+            iterations = a.current_iteration();
+        }
+
+        synchronized Result result(boolean timed_out, String stop_reason) {
+            return new Result(best == null ? null : new Vector(best), value, iterations, timed_out, stop_reason);
+        }
+    }
+
+    private final Algorithm algo;
+    private ExecutorService executor; // null: a thread is created for each search
+    private long grace = DEFAULT_GRACE;
+    private Future<Result> pending;   // last search, null if none
+
+    /**
+     * Build the runner of an algorithm.
+     */
+    public TimedSearch(Algorithm algo) {
+        this.algo = algo;
+    }
+
+    /**
+     * Set the executor of the searches. By default, a thread is
+     * created for each search.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Set the time given to a search to stop after its deadline (in ms).
+     */
+    public void setGrace(long grace) {
+        this.grace = grace;
+    }
+
+    /**
+     * @return true if the last search is not over (e.g., after
+     * a timeout of "run", until the evaluation in progress ends).
+     */
+    public synchronized boolean isBusy() {
+        return pending != null && !pending.isDone();
+    }
+
+    /**
+     * Start a search from x0, stopped when the token is cancelled
+     * (e.g., a token with a deadline). The algorithm must not be
+     * used until the search is over.
+     *
+     * @throws IllegalStateException if the last search is not over
+     */
+    public Future<Result> submit(Vector x0, Cancellation token) {
+        return submit(x0, token, new Progress());
+    }
+
+    /**
+     * Run a search from x0 limited to "timeout" milliseconds
+     * and wait for its result (at most "grace" ms more).
+     *
+     * @throws IllegalStateException if the last search is not over
+     */
+    public Result run(Vector x0, long timeout) {
+        Cancellation token = new Cancellation(timeout);
+        Progress progress = new Progress();
+        Future<Result> future = submit(x0, token, progress);
+        long wait = timeout > Long.MAX_VALUE - grace ? Long.MAX_VALUE : timeout + grace;
+        try {
+            return future.get(wait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            token.cancel();
+            return progress.result(true, "cancelled (evaluation in progress)");
+        } catch (InterruptedException e) {
+            token.cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted during the search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private synchronized Future<Result> submit(Vector x0, Cancellation token, Progress progress) {
+        if (isBusy()) throw new IllegalStateException("the last search is not over");
+        pending = start(x0, token, progress);
+        return pending;
+    }
+
+    private Future<Result> start(Vector x0, Cancellation token, Progress progress) {
+        if (executor != null) return executor.submit(() -> search(x0, token, progress));
+
+        ExecutorService pool = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "timed-search");
+            t.setDaemon(true); // (the search may outlive "run")
+            return t;
+        });
+        try {
+            return pool.submit(() -> search(x0, token, progress));
+        } finally {
+            pool.shutdown(); // the thread ends with the search
+        }
+    }
+
+    /*
+     * The search itself, in the thread of the executor.
+     */
+    private Result search(Vector x0, Cancellation token, Progress progress) {
+        Cancellation previous = algo.getCancellation();
+        int period = algo.getCancellationPeriod();
+        algo.setCancellation(token, period);
+        try {
+            algo.start(x0);
+            // the best iterate is tracked in case f is not monotone
+            progress.offer(algo);
+            while (algo.advance()) progress.offer(algo);
+            return progress.result(token.isExpired(), algo.getStopReason());
+        } finally {
+            algo.setCancellation(previous, period);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package tests;
+
+import java.io.File;
+import java.util.List;
+
+import func.AlmostDiag;
+import func.CountedFunc;
+import func.Hilbert;
+import func.QuadraForm;
+import func.RealFunc;
+import func.Rosenbrock;
+import line.SlopeIter;
+import line.StrongWolfe;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import solve.Algorithm;
+import solve.Cancellation;
+import solve.ConjugateGradients;
+import solve.IterationHistory;
+import solve.JacobiPreconditioner;
+import solve.LBFGS;
+import solve.LinearConjugateGradients;
+import solve.Metrics;
+import solve.Newton;
+import solve.QuasiNewton;
+import solve.SSORPreconditioner;
+import solve.SteepestDescent;
+import solve.StopCriterion;
+import solve.TimedSearch;
+import util.SparseMatrix;
+import util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestAlgorithms {
+
+    public static double precision = 1e-10;
+
+    private static Vector x5 = new Vector(new double[]{1, 2, -1, 3, 1});
+
+    /*
+     * Sparse (tridiagonal) quadratic form in dimension n.
+     */
+    private static QuadraForm tridiagonal(int n) {
+        SparseMatrix.Builder b = new SparseMatrix.Builder(n, n);
+        for (int i = 0; i < n; i++) {
+            b.add(i, i, 2.5);
+            if (i > 0) b.add(i, i - 1, -1);
+            if (i < n - 1) b.add(i, i + 1, -1);
+        }
+        return new QuadraForm(b.build(), Vector.makeVector(n, i -> 1));
+    }
+
+    @Test
+    public void testLinearCG() {
+        QuadraForm f = new AlmostDiag(5);
+        LinearConjugateGradients cg = new LinearConjugateGradients(f);
+        cg.start(x5);
+        Vector x = cg.search();
+        assertEquals(0, f.grad(x).norm(), precision);
+        assertTrue(cg.current_iteration() <= 5);
+    }
+
+    @Test
+    public void testLinearCGTolerance() {
+        // ill-conditioned: the residual stagnates long before the step vanishes
+        QuadraForm f = new Hilbert(12);
+        Vector x0 = new Vector(12);
+        for (int i = 0; i < 12; i++) x0.set(i, i + 1);
+        LinearConjugateGradients cg = new LinearConjugateGradients(f);
+        cg.start(x0);
+        Vector x = cg.search();
+        assertTrue(cg.current_iteration() <= 3 * 12);
+        assertTrue(f.grad(x).norm() <= 1e-10 * f.grad(x0).norm());
+
+        cg.setTolerance(1e-3);
+        cg.start(x0);
+        x = cg.search();
+        assertTrue(f.grad(x).norm() <= 1e-3 * f.grad(x0).norm());
+        assertTrue(cg.current_iteration() < 12);
+    }
+
+    @Test
+    public void testLinearCGPreconditioned() {
+        QuadraForm f = new Hilbert(5);
+        LinearConjugateGradients[] algos = {
+            new LinearConjugateGradients(f, new JacobiPreconditioner(f.Q)),
+            new LinearConjugateGradients(f, new SSORPreconditioner(f.Q)),
+            new LinearConjugateGradients(f, new SSORPreconditioner(f.Q, 1.5))
+        };
+        for (LinearConjugateGradients cg : algos) {
+            cg.start(x5);
+            assertEquals(0, f.grad(cg.search()).norm(), precision);
+        }
+    }
+
+    @Test
+    public void testBFGSRosenbrock() {
+        RealFunc f = new Rosenbrock();
+        QuasiNewton bfgs = new QuasiNewton(f, new SlopeIter(f));
+        bfgs.start(new Vector(new double[]{-1.2, 1}));
+        Vector x = bfgs.search();
+        assertEquals(1, x.get(0), 1e-6);
+        assertEquals(1, x.get(1), 1e-6);
+        assertTrue(bfgs.current_iteration() < 100);
+    }
+
+    @Test
+    public void testBFGSHilbert() {
+        RealFunc f = new Hilbert(5);
+        QuasiNewton bfgs = new QuasiNewton(f, new SlopeIter(f));
+        bfgs.start(x5);
+        assertEquals(0, f.eval(bfgs.search()), precision);
+    }
+
+    @Test
+    public void testLBFGSRosenbrock() {
+        RealFunc f = new Rosenbrock();
+        LBFGS lbfgs = new LBFGS(f, new SlopeIter(f), 3);
+        lbfgs.start(new Vector(new double[]{-1.2, 1}));
+        Vector x = lbfgs.search();
+        assertEquals(1, x.get(0), 1e-6);
+        assertEquals(1, x.get(1), 1e-6);
+    }
+
+    @Test
+    public void testBFGSStrongWolfe() {
+        RealFunc f = new Rosenbrock();
+        QuasiNewton bfgs = new QuasiNewton(f, new StrongWolfe(f));
+        bfgs.start(new Vector(new double[]{-1.2, 1}));
+        Vector x = bfgs.search();
+        assertEquals(1, x.get(0), 1e-6);
+        assertEquals(1, x.get(1), 1e-6);
+    }
+
+    @Test
+    public void testLBFGSSparse() {
+        int n = 1000;
+        QuadraForm f = tridiagonal(n);
+        LBFGS lbfgs = new LBFGS(f, new SlopeIter(f));
+        lbfgs.start(new Vector(n));
+        assertEquals(0, f.grad(lbfgs.search()).norm(), 1e-8);
+    }
+
+    @Test
+    public void testNewtonRosenbrock() {
+        Rosenbrock f = new Rosenbrock();
+        for (boolean direct : new boolean[]{true, false}) {
+            Newton newton = new Newton(f, new StrongWolfe(f), direct);
+            newton.start(new Vector(new double[]{-1.2, 1}));
+            Vector x = newton.search();
+            assertEquals(1, x.get(0), 1e-10);
+            assertEquals(1, x.get(1), 1e-10);
+            assertTrue(newton.current_iteration() < 100);
+        }
+    }
+
+    @Test
+    public void testNewtonCGSparse() {
+        int n = 1000;
+        QuadraForm f = tridiagonal(n);
+        Newton newton = new Newton(f, new StrongWolfe(f)); // n>DIRECT_MAX_DIM: Newton-CG
+        newton.start(new Vector(n));
+        // f~-1000 at the minimizer: the line search cannot see
+        // decreases of f below 1e-13, hence the gradient below 1e-6
+        assertEquals(0, f.grad(newton.search()).norm(), 1e-6);
+    }
+
+    @Test
+    public void testCurrentView() {
+        RealFunc f = new Rosenbrock();
+        QuasiNewton bfgs = new QuasiNewton(f, new SlopeIter(f));
+        bfgs.start(new Vector(new double[]{-1.2, 1}));
+        Vector view = bfgs.current_view();
+        while (bfgs.advance()) {
+            assertEquals(bfgs.current_vector(), view);
+        }
+        assertEquals(0, view.distance(new Vector(new double[]{1, 1})), 1e-6);
+        try {
+            view.set(0, 0);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStopCriteria() {
+        RealFunc f = new Rosenbrock();
+        Vector x0 = new Vector(new double[]{-1.2, 1});
+
+        QuasiNewton bfgs = new QuasiNewton(f, new SlopeIter(f));
+        bfgs.addStopCriterion(StopCriterion.gradientNorm(1e-3));
+        bfgs.start(x0);
+        bfgs.search();
+        assertTrue(bfgs.current_grad().norm() < 1e-3);
+        assertEquals("gradient norm < 0.001", bfgs.getStopReason());
+        int iterations = bfgs.current_iteration();
+
+        // the last iterate is the same with a stricter criterion that never fires first
+        bfgs.addStopCriterion(StopCriterion.gradientNorm(1e-4));
+        bfgs.start(x0);
+        bfgs.search();
+        assertEquals(iterations, bfgs.current_iteration());
+
+        SteepestDescent sd = new SteepestDescent(f, new SlopeIter(f));
+        sd.addStopCriterion(StopCriterion.stagnation(5, 1e-3));
+        sd.start(x0);
+        sd.search();
+        assertTrue(sd.current_iteration() < Algorithm.DEFAULT_MAX_ITERATION);
+        assertTrue(sd.getStopReason().startsWith("no decrease"));
+    }
+
+    @Test
+    public void testStopCriteriaState() {
+        RealFunc f = new Rosenbrock();
+        Vector x0 = new Vector(new double[]{-1.2, 1});
+        QuasiNewton bfgs = new QuasiNewton(f, new SlopeIter(f));
+        IterationHistory h = new IterationHistory(1000);
+        bfgs.addObserver(h);
+
+        // valueDecrease: fires at the first small decrease, not before
+        bfgs.addStopCriterion(StopCriterion.valueDecrease(1e-6, 1e-3));
+        bfgs.start(x0);
+        bfgs.search();
+        assertTrue(bfgs.getStopReason().startsWith("decrease of f"));
+        int n = bfgs.current_iteration();
+        for (int k = 1; k <= n; k++) {
+            double decrease = h.value(k - 1) - h.value(k);
+            assertEquals(k == n, decrease <= 1e-6 + 1e-3 * Math.abs(h.value(k - 1)));
+        }
+
+        // stepNorm
+        bfgs = new QuasiNewton(f, new SlopeIter(f));
+        h.clear();
+        bfgs.addObserver(h);
+        bfgs.addStopCriterion(StopCriterion.stepNorm(1e-3));
+        bfgs.start(x0);
+        bfgs.search();
+        n = bfgs.current_iteration();
+        assertTrue(bfgs.getStopReason().startsWith("step norm <"));
+        for (int k = 1; k <= n; k++) assertEquals(k == n, h.step(k) < 1e-3);
+
+        // all: every criterion is tested (and keeps its state) at each iteration
+        bfgs = new QuasiNewton(f, new SlopeIter(f));
+        bfgs.addStopCriterion(StopCriterion.all(StopCriterion.gradientNorm(1e-2), StopCriterion.stepNorm(1e-2)));
+        bfgs.start(x0);
+        bfgs.search();
+        assertTrue(bfgs.getStopReason().contains(" and "));
+        assertTrue(bfgs.current_grad().norm() < 1e-2);
+
+        // linear CG knows its gradient
+        QuadraForm q = new Hilbert(12);
+        LinearConjugateGradients cg = new LinearConjugateGradients(q);
+        cg.addStopCriterion(StopCriterion.gradientNorm(1e-3));
+        cg.start(Vector.makeVector(12, i -> i + 1));
+        Vector x = cg.search();
+        assertEquals("gradient norm < 0.001", cg.getStopReason());
+        assertEquals(0, cg.current_grad().sub(q.grad(x)).norm(), 1e-10);
+    }
+
+    @Test
+    public void testStopCriteriaBudget() {
+        CountedFunc f = new CountedFunc(new Rosenbrock());
+        Vector x0 = new Vector(new double[]{-1.2, 1});
+        SteepestDescent sd = new SteepestDescent(f, new SlopeIter(f));
+        IterationHistory h = new IterationHistory(1000);
+        sd.addObserver(h);
+        sd.setEvaluationCounter(f::getEvaluations);
+        sd.addStopCriterion(StopCriterion.evaluations(f::getEvaluations, 30));
+
+        // the budget is counted from each start
+        for (int run = 0; run < 2; run++) {
+            h.clear();
+            sd.start(x0);
+            long first = f.getEvaluations();
+            sd.search();
+            int n = sd.current_iteration();
+            assertEquals("evaluations >= 30", sd.getStopReason());
+            assertTrue(h.evaluations(n) - first >= 30);
+            assertTrue(h.evaluations(n - 1) - first < 30);
+        }
+
+        // wallClock
+        sd = new SteepestDescent(f, new SlopeIter(f));
+        sd.setMaxIteration(Integer.MAX_VALUE);
+        sd.setEpsilon(0);
+        sd.addStopCriterion(StopCriterion.wallClock(20));
+        sd.start(x0);
+        sd.search();
+        assertEquals("time >= 20 ms", sd.getStopReason());
+        assertTrue(sd.elapsed_time() >= 20);
+    }
+
+    @Test
+    public void testIterationHistory() {
+        RealFunc f = new Rosenbrock();
+        QuasiNewton bfgs = new QuasiNewton(f, new SlopeIter(f));
+        IterationHistory all = new IterationHistory(1000);
+        IterationHistory last = new IterationHistory(3, 2, true);
+        bfgs.addObserver(all);
+        bfgs.addObserver(last);
+        bfgs.start(new Vector(new double[]{-1.2, 1}));
+        Vector x = bfgs.search();
+
+        int n = bfgs.current_iteration();
+        assertEquals(n + 1, all.size());
+        assertEquals(f.eval(new Vector(new double[]{-1.2, 1})), all.value(0), 0);
+        assertEquals(f.eval(x), all.value(n), 0);
+        assertEquals(f.grad(x).norm(), all.grad_norm(n), 0);
+
+        assertEquals(3, last.size());
+        assertEquals((n / 2) * 2, last.iteration(2));
+        assertEquals(last.iteration(2) - 2, last.iteration(1));
+        assertEquals(all.value(last.iteration(0)), last.value(0), 0);
+    }
+
+    @Test
+    public void testCancellation() {
+        RealFunc f = new Rosenbrock();
+        SteepestDescent sd = new SteepestDescent(f, new StrongWolfe(f));
+        Cancellation token = new Cancellation();
+        sd.setCancellation(token);
+        sd.start(new Vector(new double[]{-1.2, 1}));
+        for (int k = 0; k < 5; k++) assertTrue(sd.advance());
+        token.cancel();
+        assertTrue(!sd.advance());
+        assertEquals("cancelled", sd.getStopReason());
+        assertEquals(5, sd.current_iteration());
+    }
+
+    @Test
+    public void testTimedSearch() {
+        // steepest descent on Rosenbrock, with slow evaluations
+        Rosenbrock f = new Rosenbrock() {
+            public double evalWithGrad(Vector x, Vector g) {
+                sleep();
+                return super.evalWithGrad(x, g);
+            }
+
+            public Vector grad(Vector x) {
+                sleep();
+                return super.grad(x);
+            }
+
+            private void sleep() {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        SteepestDescent sd = new SteepestDescent(f, new StrongWolfe(f));
+        sd.setMaxIteration(Integer.MAX_VALUE);
+        Vector x0 = new Vector(new double[]{-1.2, 1});
+
+        long time = System.currentTimeMillis();
+        TimedSearch.Result r = new TimedSearch(sd).run(x0, 50);
+        time = System.currentTimeMillis() - time;
+
+        assertTrue(r.timed_out);
+        assertEquals("cancelled", r.stop_reason);
+        assertTrue(time < 1000);
+        assertTrue(r.iterations > 0);
+        assertEquals(f.eval(r.x), r.value, 0);
+        assertTrue(r.value < f.eval(x0));
+
+        // the token of the caller is restored: the algorithm can be reused
+        // (and its period is kept during the search)
+        Cancellation mine = new Cancellation();
+        sd.setCancellation(mine, 3);
+        int[] period = new int[1];
+        sd.addObserver(it -> period[0] = sd.getCancellationPeriod());
+        new TimedSearch(sd).run(x0, 20);
+        assertEquals(3, period[0]);
+        assertTrue(sd.getCancellation() == mine);
+        assertEquals(3, sd.getCancellationPeriod());
+        sd.setMaxIteration(10);
+        sd.start(x0);
+        sd.search();
+        assertEquals(10, sd.current_iteration());
+        assertEquals("maximal number of iterations", sd.getStopReason());
+    }
+
+    @Test
+    public void testTimedSearchGrace() {
+        // an evaluation much longer than the time limit
+        Rosenbrock f = new Rosenbrock() {
+            public double evalWithGrad(Vector x, Vector g) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.evalWithGrad(x, g);
+            }
+        };
+        TimedSearch search = new TimedSearch(new SteepestDescent(f, new StrongWolfe(f)));
+        search.setGrace(50);
+        long time = System.currentTimeMillis();
+        TimedSearch.Result r = search.run(new Vector(new double[]{-1.2, 1}), 10);
+        assertTrue(System.currentTimeMillis() - time < 1000);
+        assertTrue(r.timed_out);
+
+        // the algorithm is still evaluating f
+        assertTrue(search.isBusy());
+        try {
+            search.run(new Vector(new double[]{-1.2, 1}), 10);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // no overflow of the deadline
+        assertTrue(!new Cancellation(Long.MAX_VALUE / 2).isCancelled());
+        assertTrue(!new Cancellation(Long.MAX_VALUE - 1).isCancelled());
+    }
+
+    @Test
+    public void testCancelledLineSearch() {
+        // cancel at every evaluation of the first iterations:
+        // f never increases and (L-)BFGS is not updated with a rejected step
+        Vector x0 = new Vector(new double[]{-1.2, 1});
+        for (int algo = 0; algo < 3; algo++) {
+            for (int k = 1; k <= 60; k++) {
+                Cancellation token = new Cancellation();
+                int cancel_at = k;
+                Rosenbrock f = new Rosenbrock() {
+                    int evals;
+
+                    public double eval(Vector x) {
+                        if (++evals == cancel_at) token.cancel();
+                        return super.eval(x);
+                    }
+
+                    public double evalWithGrad(Vector x, Vector g) {
+                        if (++evals == cancel_at) token.cancel();
+                        return super.evalWithGrad(x, g);
+                    }
+                };
+                Algorithm a = algo == 0 ? new SteepestDescent(f, new StrongWolfe(f))
+                    : algo == 1 ? new QuasiNewton(f, new StrongWolfe(f))
+                    : new LBFGS(f, new StrongWolfe(f));
+                IterationHistory h = new IterationHistory(1000);
+                a.addObserver(h);
+                a.setCancellation(token);
+                a.start(x0);
+                Vector x = a.search();
+                for (int i = 1; i < h.size(); i++) assertTrue(h.value(i) <= h.value(i - 1));
+                assertEquals(new Rosenbrock().eval(x), a.current_value(), 1e-12);
+                assertEquals(h.value(h.size() - 1), a.current_value(), 0);
+                if (token.isCancelled()) assertEquals("cancelled", a.getStopReason()); // (BFGS may converge first)
+            }
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        CountedFunc f = new CountedFunc(new Rosenbrock(), true);
+        QuasiNewton bfgs = new QuasiNewton(f, new StrongWolfe(f));
+        Metrics m = new Metrics(f);
+        bfgs.setMetrics(m);
+
+        Recording recording = new Recording();
+        recording.enable("solve.Iteration");
+        recording.start();
+        bfgs.start(new Vector(new double[]{-1.2, 1}));
+        bfgs.search();
+        recording.stop();
+
+        int n = bfgs.current_iteration();
+        long steps = m.getIterations(); // the last step may end the iteration
+        assertTrue(steps == n || steps == n + 1);
+        assertEquals(steps, m.getLineSearches());
+        assertTrue(m.getLineSearchIterations() >= steps);
+        assertTrue(m.getLineSearchTime() > 0 && m.getLineSearchTime() <= m.getStepTime());
+        assertEquals(f.getEvaluations(), (long) m.snapshot().get("f.evaluations"));
+        assertTrue(f.getFusedTime() > 0); // the solvers use evalWithGrad
+        assertTrue(m.getResultTime() >= 0);
+        assertEquals(m.getStepTime() - m.getLineSearchTime() - m.getResultTime(),
+            (long) m.snapshot().get("direction.time"));
+
+        File file = File.createTempFile("metrics", ".jfr");
+        try {
+            recording.dump(file.toPath());
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            long ls = 0;
+            for (RecordedEvent e : events) ls += e.getLong("line_search_iterations");
+            assertEquals(steps, events.size());
+            assertEquals(m.getLineSearchIterations(), ls);
+        } finally {
+            recording.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMakeConjugateGradients() {
+        QuadraForm f = new AlmostDiag(5);
+        Algorithm a = ConjugateGradients.makeConjugateGradients(f, new SlopeIter(f));
+        assertTrue(a instanceof LinearConjugateGradients);
+    }
+}
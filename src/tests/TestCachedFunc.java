@@ -0,0 +1,69 @@
+package tests;
+
+import func.CachedFunc;
+import func.RealFunc;
+import func.Rosenbrock;
+import org.junit.Test;
+import util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestCachedFunc {
+
+    // Rosenbrock, counting the evaluations of f and of its gradient
+    private static class Counting extends Rosenbrock {
+        int evals, grads;
+
+        public double eval(Vector v) {
+            evals++;
+            return super.eval(v);
+        }
+
+        public Vector grad(Vector v) {
+            grads++;
+            return super.grad(v);
+        }
+
+        public double evalWithGrad(Vector v, Vector g) {
+            evals++;
+            grads++;
+            return super.evalWithGrad(v, g);
+        }
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        Counting f = new Counting();
+        CachedFunc c = new CachedFunc(f);
+        Vector x = new Vector(new double[]{-1.2, 1});
+        Vector g = new Vector(2);
+
+        assertEquals(f.eval(x), c.eval(x), 0);
+        assertEquals(f.eval(x), c.evalWithGrad(new Vector(x), g), 0); // gradient only
+        assertEquals(0, g.sub(f.grad(x)).norm(), 0);
+        assertEquals(0, c.grad(x).sub(f.grad(x)).norm(), 0);
+        assertEquals(f.eval(x), c.eval(x), 0);
+
+        assertEquals(2, c.getMisses());
+        assertEquals(2, c.getHits());
+        assertEquals(3 + 1, f.evals); // 3 direct calls in the test
+        assertEquals(2 + 1, f.grads); // 2 direct calls in the test
+    }
+
+    @Test
+    public void testEviction() {
+        Counting f = new Counting();
+        RealFunc c = new CachedFunc(f, 2);
+        Vector x1 = new Vector(new double[]{1, 1});
+        Vector x2 = new Vector(new double[]{2, 1});
+        Vector x3 = new Vector(new double[]{3, 1});
+        c.eval(x1);
+        c.eval(x2);
+        c.eval(x1); // x2 is now the least recently used
+        c.eval(x3); // evicts x2
+        c.eval(x1);
+        assertEquals(3, f.evals);
+        c.eval(x2);
+        assertEquals(4, f.evals);
+    }
+}
@@ -0,0 +1,77 @@
+package tests;
+
+import func.CountedFunc;
+import func.CountedTwiceDiffFunc;
+import func.Rosenbrock;
+import line.StrongWolfe;
+import solve.Newton;
+import org.junit.Test;
+import util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestCountedFunc {
+
+    @Test
+    public void testCounts() {
+        Rosenbrock f = new Rosenbrock();
+        CountedFunc c = new CountedFunc(f);
+        Vector x = new Vector(new double[]{-1.2, 1});
+        Vector g = new Vector(2);
+
+        assertEquals(f.eval(x), c.eval(x), 0);
+        assertEquals(0, c.grad(x).sub(f.grad(x)).norm(), 0);
+        assertEquals(f.eval(x), c.evalWithGrad(x, g), 1e-12);
+        assertEquals(0, g.sub(f.grad(x)).norm(), 1e-12);
+
+        assertEquals(2, c.getEvaluations());
+        assertEquals(2, c.getGradients());
+        assertEquals(1, c.getFusedEvaluations());
+        assertEquals(0, c.getEvalTime()); // not timed
+
+        c.reset();
+        assertEquals(0, c.getEvaluations());
+        assertEquals(0, c.getGradients());
+    }
+
+    @Test
+    public void testTimes() {
+        CountedFunc c = new CountedFunc(new Rosenbrock(), true);
+        Vector x = new Vector(new double[]{-1.2, 1});
+        for (int k = 0; k < 1000; k++) {
+            c.eval(x);
+            c.grad(x);
+        }
+        assertEquals(1000, c.getEvaluations());
+        assertTrue(c.getEvalTime() > 0);
+        assertTrue(c.getGradTime() > 0);
+        assertEquals(0, c.getFusedTime());
+
+        // fused calls are timed apart
+        for (int k = 0; k < 1000; k++) c.evalWithGrad(x, new Vector(2));
+        assertEquals(2000, c.getEvaluations());
+        assertEquals(1000, c.getFusedEvaluations());
+        assertTrue(c.getFusedTime() > 0);
+    }
+
+    @Test
+    public void testNewton() {
+        Vector x0 = new Vector(new double[]{-1.2, 1});
+        for (boolean direct : new boolean[]{true, false}) {
+            CountedTwiceDiffFunc f = new CountedTwiceDiffFunc(new Rosenbrock());
+            Newton newton = new Newton(f, new StrongWolfe(f), direct);
+            newton.start(x0);
+            newton.search();
+            int n = newton.current_iteration();
+            if (direct) {
+                assertTrue(f.getHessians() >= n);
+                assertEquals(0, f.getHessVecs());
+            } else {
+                assertEquals(0, f.getHessians());
+                assertTrue(f.getHessVecs() >= n);
+            }
+            assertTrue(f.getEvaluations() > n);
+        }
+    }
+}
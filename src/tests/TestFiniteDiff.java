@@ -0,0 +1,97 @@
+package tests;
+
+import func.CountedFunc;
+import func.FiniteDiff;
+import func.Hilbert;
+import func.RealFunc;
+import func.Rosenbrock;
+import org.junit.Test;
+import util.Vector;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestFiniteDiff {
+
+    @Test
+    public void testForward() {
+        RealFunc f = new Rosenbrock();
+        Vector x = new Vector(new double[]{-1.2, 1});
+        FiniteDiff fd = new FiniteDiff(f);
+        assertEquals(0, fd.grad(x).sub(f.grad(x)).norm(), 1e-4);
+    }
+
+    @Test
+    public void testCentral() {
+        RealFunc f = new Hilbert(20);
+        Vector x = Vector.makeVector(20, i -> i - 10);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            FiniteDiff fd = new FiniteDiff(f, true, executor);
+            Vector g = new Vector(20);
+            assertEquals(f.eval(x), fd.evalWithGrad(x, g), 0);
+            assertEquals(0, g.sub(f.grad(x)).norm(), 1e-6);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvaluations() {
+        CountedFunc f = new CountedFunc(new Hilbert(10));
+        Vector x = Vector.makeVector(10, i -> i);
+        new FiniteDiff(f).grad(x);
+        assertEquals(11, f.getEvaluations());
+
+        f.reset();
+        FiniteDiff fd = new FiniteDiff(f, true);
+        fd.grad(x);
+        assertEquals(20, f.getEvaluations()); // f(x) is not needed
+        f.reset();
+        fd.evalWithGrad(x, new Vector(10));
+        assertEquals(21, f.getEvaluations());
+    }
+
+    @Test
+    public void testFailure() throws InterruptedException {
+        int n = 50;
+        AtomicInteger evaluations = new AtomicInteger();
+        RealFunc f = new RealFunc() {
+            public int dim() {
+                return n;
+            }
+
+            public double eval(Vector y) {
+                evaluations.incrementAndGet();
+                if (y.get(0) != 0) throw new ArithmeticException("no value");
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return y.norm();
+            }
+
+            public Vector grad(Vector y) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new FiniteDiff(f, true, executor).grad(new Vector(n));
+            fail();
+        } catch (ArithmeticException e) {
+            // the pending evaluations are cancelled
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(evaluations.get() < 2 * n);
+    }
+}
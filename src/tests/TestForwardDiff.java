@@ -0,0 +1,72 @@
+package tests;
+
+import ad.Arithmetic;
+import ad.ForwardDiff;
+import ad.Formula;
+import func.Rosenbrock;
+import org.junit.Test;
+import util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestForwardDiff {
+
+    public static double precision = 1e-10;
+
+    static Formula rosenbrock = new Formula() {
+        public int dim() {
+            return 2;
+        }
+
+        public int eval(Arithmetic a) {
+            int x = a.var(0), y = a.var(1);
+            return a.add(a.sqr(a.sub(a.cst(1), x)), a.scale(100, a.sqr(a.sub(y, a.sqr(x)))));
+        }
+    };
+
+    // sum_i sin(x_i)*exp(x_{i+1}) / (1+x_i^2) + sqrt(x_i^2+1)*log(2+cos(x_i)) - x_i^3
+    static Formula mixed = new Formula() {
+        public int dim() {
+            return 10;
+        }
+
+        public int eval(Arithmetic a) {
+            int s = a.cst(0);
+            for (int i = 0; i < 10; i++) {
+                int x = a.var(i), y = a.var((i + 1) % 10);
+                int x2p1 = a.add(a.sqr(x), a.cst(1));
+                s = a.add(s, a.div(a.mul(a.sin(x), a.exp(y)), x2p1));
+                s = a.add(s, a.mul(a.sqrt(x2p1), a.log(a.add(a.cst(2), a.cos(x)))));
+                s = a.sub(s, a.pow(x, 3));
+                s = a.add(s, a.neg(a.scale(0, x)));
+            }
+            return s;
+        }
+    };
+
+    @Test
+    public void testRosenbrock() {
+        Rosenbrock r = new Rosenbrock();
+        ForwardDiff f = new ForwardDiff(rosenbrock);
+        Vector x = new Vector(new double[]{-1.2, 1});
+        assertEquals(r.eval(x), f.eval(x), precision);
+        assertEquals(0, f.grad(x).sub(r.grad(x)).norm(), precision);
+    }
+
+    @Test
+    public void testChunks() {
+        Vector x = Vector.makeVector(10, i -> 0.3 * i - 1);
+        double h = 1e-6;
+        for (int chunk : new int[]{1, 3, 10, 20}) {
+            ForwardDiff f = new ForwardDiff(mixed, chunk);
+            Vector g = new Vector(10);
+            assertEquals(f.eval(x), f.evalWithGrad(x, g), precision);
+            for (int i = 0; i < 10; i++) {
+                Vector xp = new Vector(x), xm = new Vector(x);
+                xp.set(i, x.get(i) + h);
+                xm.set(i, x.get(i) - h);
+                assertEquals((f.eval(xp) - f.eval(xm)) / (2 * h), g.get(i), 1e-6);
+            }
+        }
+    }
+}
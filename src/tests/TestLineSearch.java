@@ -1,10 +1,15 @@
 package tests;
 
+import func.CountedFunc;
+import func.Rosenbrock;
+import line.Dichotomy;
 import line.LineSearch;
+import line.StrongWolfe;
 import org.junit.Test;
 import util.Vector;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestLineSearch {
 
@@ -48,5 +53,57 @@ public class TestLineSearch {
 	public void testLineSearch06() {
 		assertEquals("checking LineSearch.derivative:", -5, s.derivative(FuncTest1.x2, FuncTest1.d2, 0), round_error);
 	}
+
+	@Test
+	public void testLineSearch07() {
+		assertEquals("checking LineSearch.evalWithDerivative:", 1.5, s.evalWithDerivative(FuncTest1.x0, FuncTest1.d0, 1.0), round_error);
+		assertEquals("checking LineSearch.evalWithDerivative:", 5, s.getLastSlope(), round_error);
+	}
+
+	@Test
+	public void testStrongWolfe01() {
+		// f1(x2+alpha*d2) is alpha -> 5/2 alpha^2 - 5 alpha + 3/2: alpha=1 is accepted at once
+		assertEquals("checking StrongWolfe:", 1.0, new StrongWolfe(new FuncTest1()).search(FuncTest1.x2, FuncTest1.d2), round_error);
+	}
+
+	@Test
+	public void testStrongWolfe02() {
+		// f1(x2+alpha*4*d2) is alpha -> 40 alpha^2 - 20 alpha + 3/2, minimum at 0.25
+		Vector d = FuncTest1.d2.leftmul(4);
+		StrongWolfe w = new StrongWolfe(new FuncTest1());
+		double alpha = w.search(FuncTest1.x2, d);
+		assertEquals("checking StrongWolfe:", 0.25, alpha, round_error);
+		assertTrue("checking StrongWolfe iterations:", w.current_iteration() <= 3);
+	}
 	
+	@Test
+	public void testResultWithGrad() {
+		// same search, the start point being known: f(x2+0.25*4*d2)=-1
+		FuncTest1 f = new FuncTest1();
+		Vector d = FuncTest1.d2.leftmul(4);
+		StrongWolfe w = new StrongWolfe(f);
+		double alpha = w.search(FuncTest1.x2, d, f.eval(FuncTest1.x2), f.grad(FuncTest1.x2));
+		Vector g = new Vector(2);
+		assertEquals("checking resultWithGrad:", -1, w.resultWithGrad(g), round_error);
+		Vector x = FuncTest1.x2.add(d.leftmul(alpha));
+		assertEquals("checking resultWithGrad:", 0, g.sub(f.grad(x)).norm(), round_error);
+	}
+
+	@Test
+	public void testValueOnlyStart() {
+		// the dichotomy only needs values: no gradient is computed
+		CountedFunc f = new CountedFunc(new Rosenbrock());
+		Vector x = new Vector(new double[]{-1.2, 1});
+		Vector d = new Rosenbrock().grad(x).leftmul(-1);
+		Dichotomy s = new Dichotomy(f);
+		double alpha = s.search(x, d);
+		assertTrue(alpha > 0);
+		assertEquals(0, f.getGradients());
+
+		Vector g = new Vector(2);
+		Vector y = x.add(d.leftmul(alpha));
+		assertEquals(new Rosenbrock().eval(y), s.resultWithGrad(g), round_error);
+		assertEquals(0, g.sub(new Rosenbrock().grad(y)).norm(), round_error);
+	}
+
 }
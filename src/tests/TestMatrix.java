@@ -0,0 +1,325 @@
+package tests;
+
+import func.QuadraForm;
+import org.junit.Test;
+import util.BatchCholesky;
+import util.CholeskyDecomposition;
+import util.LDLDecomposition;
+import util.LUDecomposition;
+import util.Matrix;
+import util.Parallel;
+import util.Singularity;
+import util.SparseMatrix;
+import util.Vector;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestMatrix {
+
+    public static double round_error = 1e-10;
+
+    private static Matrix A = new Matrix(new double[][]{{1, 2, 3}, {2, -1, -1}});
+    private static Matrix B = new Matrix(new double[][]{{1, 2}, {1, -1}, {1, 1}});
+    private static Matrix C = new Matrix(new double[][]{{0, 2, 1}, {1, 1, 0}, {3, 0, 1}});
+    private static Matrix S = new Matrix(new double[][]{{4, 2, -2}, {2, 5, 1}, {-2, 1, 6}});
+
+    private static void assertMatrixEquals(Matrix expected, Matrix actual) {
+        assertEquals(expected.nb_rows(), actual.nb_rows());
+        assertEquals(expected.nb_cols(), actual.nb_cols());
+        for (int i = 0; i < expected.nb_rows(); i++)
+            for (int j = 0; j < expected.nb_cols(); j++)
+                assertEquals(expected.get(i, j), actual.get(i, j), round_error);
+    }
+
+    @Test
+    public void testMult() {
+        assertMatrixEquals(new Matrix(new double[][]{{6, 3}, {0, 4}}), A.mult(B));
+    }
+
+    @Test
+    public void testMultVector() {
+        Vector y = A.mult(new Vector(new double[]{1, 1, 1}));
+        assertEquals(6, y.get(0), 0.0);
+        assertEquals(0, y.get(1), 0.0);
+    }
+
+    @Test
+    public void testSetIdentity() {
+        Matrix M = new Matrix(C);
+        M.setIdentity(2);
+        assertMatrixEquals(Matrix.identity(3).leftmul(2), M);
+    }
+
+    @Test
+    public void testFill() {
+        Vector x = new Vector(new double[]{1, Double.NaN, Double.POSITIVE_INFINITY});
+        x.fill(0);
+        assertEquals(0, x.norm(), 0);
+        assertEquals(new Vector(new double[]{2, 2, 2}), x.fill(2));
+    }
+
+    /*
+     * Check that "write" throws and leaves the read-only view of x unchanged.
+     */
+    private static void assertReadOnly(Vector x, Consumer<Vector> write) {
+        Vector copy = new Vector(x);
+        try {
+            write.accept(x.readOnly());
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals(copy, x);
+        }
+    }
+
+    @Test
+    public void testReadOnly() throws Singularity {
+        Vector b = new Vector(new double[]{4, 3, 5});
+        Vector x = new Vector(new double[]{1, -2, 3});
+        SparseMatrix T = new SparseMatrix.Builder(3, 3).add(0, 0, 1).add(1, 2, 2).add(2, 1, 3).build();
+        LUDecomposition lu = new LUDecomposition(C);
+        CholeskyDecomposition chol = new CholeskyDecomposition(S);
+        LDLDecomposition ldl = new LDLDecomposition(S);
+
+        assertReadOnly(x, v -> v.set(0, 1));
+        assertReadOnly(x, v -> v.set(b));
+        assertReadOnly(x, v -> v.axpy(1, b));
+        assertReadOnly(x, v -> v.scaleInPlace(2));
+        assertReadOnly(x, v -> v.fill(0));
+        assertReadOnly(x, v -> b.subInto(x, v));
+        assertReadOnly(x, v -> v.subInto(b, v));
+        assertReadOnly(x, v -> C.multInto(b, v));
+        assertReadOnly(x, v -> T.multInto(b, v));
+        assertReadOnly(x, v -> T.transpose().multInto(b, v));
+        assertReadOnly(x, v -> solve(() -> lu.solveInto(b, v)));
+        assertReadOnly(x, v -> chol.solveInto(b, v));
+        assertReadOnly(x, v -> chol.solveInto(v, v));
+        assertReadOnly(x, v -> solve(() -> ldl.solveInto(v, v)));
+        assertReadOnly(x, v -> new QuadraForm(S, b).evalWithGrad(b, v));
+
+        // reading through a view is allowed
+        assertEquals(C.mult(x), C.multInto(x.readOnly(), new Vector(3)));
+        assertEquals(x.sub(b), x.readOnly().subInto(b, new Vector(3)));
+    }
+
+    private interface Solve {
+        void run() throws Singularity;
+    }
+
+    private static void solve(Solve s) {
+        try {
+            s.run();
+        } catch (Singularity e) {
+            fail();
+        }
+    }
+
+    @Test
+    public void testNaNPropagation() {
+        // 0*NaN is NaN: the dense kernels must not skip the zeros
+        Matrix Z = new Matrix(new double[][]{{0, 1}, {1, 0}});
+        Matrix N = new Matrix(new double[][]{{Double.NaN, 1}, {1, 1}});
+        Matrix P = Z.mult(N);
+        assertTrue(Double.isNaN(P.get(0, 0)) && Double.isNaN(P.get(1, 0)));
+
+        Vector nan = new Vector(new double[]{Double.NaN, 1});
+        Vector zero = new Vector(new double[]{0, 1});
+        assertTrue(Double.isNaN(Z.bilinear(zero, nan)));
+        assertTrue(Double.isNaN(Z.bilinear(nan, zero)));
+
+        Matrix R = Matrix.identity(2);
+        R.rank1Update(1, zero, nan);
+        assertTrue(Double.isNaN(R.get(0, 0)));
+    }
+
+    @Test
+    public void testLUSolveNaN() throws Singularity {
+        // the solve with several right-hand sides gives the same
+        // (non-finite) results as the solve with one vector
+        Matrix I = Matrix.identity(3);
+        Matrix B = new Matrix(new double[][]{{Double.NaN, 1}, {1, Double.POSITIVE_INFINITY}, {1, 1}});
+        Matrix X = new LUDecomposition(I).solve(B);
+        for (int c = 0; c < 2; c++) {
+            Vector x = new LUDecomposition(I).solve(B.get_col(c));
+            for (int i = 0; i < 3; i++) assertEquals(x.get(i), X.get(i, c), 0);
+        }
+        assertTrue(Double.isNaN(X.get(1, 0)));
+    }
+
+    @Test
+    public void testCholeskySolveNaN() throws Singularity {
+        // same results with several right-hand sides as with one vector
+        Matrix D = new Matrix(new double[][]{{4, 0, 0}, {0, 1, 0}, {0, 0, 9}});
+        Matrix B = new Matrix(new double[][]{{Double.NaN, 1}, {1, Double.POSITIVE_INFINITY}, {1, 1}});
+        CholeskyDecomposition chol = new CholeskyDecomposition(D);
+        Matrix X = chol.solve(B);
+        for (int c = 0; c < 2; c++) {
+            Vector x = chol.solve(B.get_col(c));
+            for (int i = 0; i < 3; i++) assertEquals(x.get(i), X.get(i, c), 0);
+        }
+        assertTrue(Double.isNaN(X.get(2, 0)));
+    }
+
+    @Test
+    public void testTranspose() {
+        assertMatrixEquals(new Matrix(new double[][]{{1, 2}, {2, -1}, {3, -1}}), A.transpose());
+    }
+
+    @Test
+    public void testLUSolve() throws Singularity {
+        Vector b = new Vector(new double[]{4, 3, 5});
+        Vector x = new LUDecomposition(C).solve(b);
+        assertEquals(0, C.mult(x).sub(b).norm(), round_error);
+    }
+
+    @Test
+    public void testLUSolveMatrix() throws Singularity {
+        Matrix X = new LUDecomposition(C).solve(B);
+        assertMatrixEquals(B, C.mult(X));
+    }
+
+    @Test
+    public void testDeterminant() throws Singularity {
+        assertEquals(-5, new LUDecomposition(C).determinant(), round_error);
+    }
+
+    @Test
+    public void testInverse() throws Singularity {
+        assertMatrixEquals(Matrix.identity(3), C.inverse().mult(C));
+    }
+
+    @Test(expected = Singularity.class)
+    public void testSingular() throws Singularity {
+        new LUDecomposition(new Matrix(new double[][]{{1, 2}, {2, 4}})).solve(new Vector(2));
+    }
+
+    @Test
+    public void testCholesky() throws Singularity {
+        CholeskyDecomposition chol = new CholeskyDecomposition(S);
+        Matrix L = chol.getL();
+        assertMatrixEquals(S, L.mult(L.transpose()));
+        Vector b = new Vector(new double[]{1, -2, 3});
+        assertEquals(0, S.mult(chol.solve(b)).sub(b).norm(), round_error);
+        assertMatrixEquals(B, S.mult(chol.solve(B)));
+        assertEquals(new LUDecomposition(S).determinant(), chol.determinant(), round_error);
+    }
+
+    @Test
+    public void testCholeskyHilbert() throws Singularity {
+        Matrix H = Matrix.makeMatrix(6, (i, j) -> 1.0 / (i + j + 1));
+        Vector b = new Vector(new double[]{1, 1, 1, 1, 1, 1});
+        assertEquals(0, H.mult(new CholeskyDecomposition(H).solve(b)).sub(b).norm(), 1e-6);
+    }
+
+    @Test(expected = Singularity.class)
+    public void testCholeskyNotPD() throws Singularity {
+        new CholeskyDecomposition(new Matrix(new double[][]{{1, 2}, {2, 1}}));
+    }
+
+    @Test
+    public void testCholeskyUpdate() throws Singularity {
+        Vector v = new Vector(new double[]{1, 0.5, -1});
+        CholeskyDecomposition chol = new CholeskyDecomposition(S);
+        chol.update(v);
+        Matrix vvT = new Matrix(new double[][]{{1, 0.5, -1}, {0.5, 0.25, -0.5}, {-1, -0.5, 1}});
+        Matrix L = chol.getL();
+        assertMatrixEquals(S.add(vvT), L.mult(L.transpose()));
+        chol.downdate(v);
+        L = chol.getL();
+        assertMatrixEquals(S, L.mult(L.transpose()));
+    }
+
+    @Test(expected = Singularity.class)
+    public void testCholeskyDowndateNotPD() throws Singularity {
+        new CholeskyDecomposition(Matrix.identity(2)).downdate(new Vector(new double[]{1, 0}));
+    }
+
+    @Test
+    public void testLDLSemidefinite() throws Singularity {
+        // rank 1: (1,2)(1,2)^T
+        LDLDecomposition ldl = new LDLDecomposition(new Matrix(new double[][]{{1, 2}, {2, 4}}));
+        assertEquals(1, ldl.rank());
+        assertFalse(ldl.isPositiveDefinite());
+        assertEquals(0, ldl.determinant(), round_error);
+
+        ldl = new LDLDecomposition(S);
+        Vector b = new Vector(new double[]{1, -2, 3});
+        assertEquals(0, S.mult(ldl.solve(b)).sub(b).norm(), round_error);
+    }
+
+    @Test(expected = Singularity.class)
+    public void testLDLNotPSD() throws Singularity {
+        new LDLDecomposition(new Matrix(new double[][]{{1, 2}, {2, 1}}));
+    }
+
+    @Test
+    public void testSparse() {
+        // built in any order, with a duplicate (2,0) entry
+        SparseMatrix A = new SparseMatrix.Builder(3, 3)
+            .add(2, 2, 1).add(0, 2, 1).add(0, 1, 2).add(1, 0, 1)
+            .add(2, 0, 1).add(1, 1, 1).add(2, 0, 2).build();
+        assertEquals(6, A.nnz());
+        assertMatrixEquals(C, A.toDense());
+        assertMatrixEquals(C.transpose(), A.transpose().toDense());
+        assertEquals(3, A.get(2, 0), 0.0);
+        assertEquals(0, A.get(0, 0), 0.0);
+
+        Vector x = new Vector(new double[]{1, -2, 3});
+        assertEquals(C.mult(x), A.mult(x));
+        assertEquals(C.transpose().mult(x), A.transpose().mult(x));
+        assertEquals(C.bilinear(x, x), A.bilinear(x, x), round_error);
+        assertMatrixEquals(C.transpose(), A.transpose().toCSR().toDense());
+    }
+
+    @Test
+    public void testSparseQuadraForm() {
+        SparseMatrix.Builder b = new SparseMatrix.Builder(3, 3);
+        for (int i = 0; i < 3; i++)
+            for (int j = 0; j < 3; j++)
+                if (S.get(i, j) != 0) b.add(i, j, S.get(i, j));
+        QuadraForm sparse = new QuadraForm(b.build());
+        QuadraForm dense = new QuadraForm(S);
+        Vector x = new Vector(new double[]{1, -2, 3});
+        assertEquals(dense.eval(x), sparse.eval(x), round_error);
+        assertEquals(dense.grad(x), sparse.grad(x));
+    }
+
+    @Test
+    public void testBatchCholesky() throws Singularity {
+        int n = 10, count = 500;
+        Random random = new Random(0);
+        double[] a = new double[count * n * n];
+        double[] b = new double[count * n];
+        for (int k = 0; k < count; k++) {
+            // M*M^T + n*I (except the last one, -I)
+            Matrix M = Matrix.makeMatrix(n, (i, j) -> random.nextDouble());
+            Matrix Ak = k < count - 1 ? M.mult(M.transpose()).add(Matrix.identity(n).leftmul(n)) : Matrix.identity(n).minus();
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) a[k * n * n + i * n + j] = Ak.get(i, j);
+            for (int i = 0; i < n; i++) b[k * n + i] = random.nextDouble();
+        }
+
+        long threshold = Parallel.getThreshold();
+        Parallel.setThreshold(1000); // force parallel blocks
+        double[] x = new double[count * n];
+        try {
+            assertEquals(1, BatchCholesky.solve(n, count, a, b, x));
+        } finally {
+            Parallel.setThreshold(threshold);
+        }
+
+        for (int k = 0; k < count - 1; k++) {
+            final int p = k;
+            Matrix Ak = Matrix.makeMatrix(n, (i, j) -> a[p * n * n + i * n + j]);
+            Vector bk = Vector.makeVector(n, i -> b[p * n + i]);
+            Vector xk = new CholeskyDecomposition(Ak).solve(bk);
+            for (int i = 0; i < n; i++) assertEquals(xk.get(i), x[k * n + i], round_error);
+        }
+        assertTrue(Double.isNaN(x[(count - 1) * n]));
+    }
+}
@@ -0,0 +1,98 @@
+package tests;
+
+import func.RealFunc;
+import line.SlopeIter;
+import org.junit.Test;
+import solve.LatinHypercube;
+import solve.MultiStart;
+import solve.QuasiNewton;
+import solve.RandomStarts;
+import solve.Sobol;
+import solve.StartGenerator;
+import util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestMultiStart {
+
+    private static Vector lo = new Vector(new double[]{-2, -2});
+    private static Vector hi = new Vector(new double[]{2, 2});
+
+    // two local minima, near (1,0) and (-1,0), the global one near (-1,0)
+    private static RealFunc doubleWell = new RealFunc() {
+        public int dim() {
+            return 2;
+        }
+
+        public double eval(Vector x) {
+            double a = x.get(0), b = x.get(1);
+            return (a * a - 1) * (a * a - 1) + b * b + 0.3 * a;
+        }
+
+        public Vector grad(Vector x) {
+            double a = x.get(0), b = x.get(1);
+            return new Vector(new double[]{4 * a * (a * a - 1) + 0.3, 2 * b});
+        }
+    };
+
+    @Test
+    public void testMultiStart() {
+        StartGenerator[] generators = {
+            new RandomStarts(lo, hi, 0),
+            new LatinHypercube(lo, hi, 8, 0),
+            new Sobol(lo, hi)
+        };
+        for (StartGenerator g : generators) {
+            MultiStart ms = new MultiStart(doubleWell, () -> new QuasiNewton(doubleWell, new SlopeIter(doubleWell)), g);
+            MultiStart.Result r = ms.run(16);
+            assertEquals(16, r.runs.size());
+            assertTrue(r.best.end.get(0) < -1);
+            assertEquals(0, doubleWell.grad(r.best.end).norm(), 1e-6);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoStart() {
+        new MultiStart(doubleWell, () -> new QuasiNewton(doubleWell, new SlopeIter(doubleWell)),
+            new RandomStarts(lo, hi, 0)).run(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSobolDimension() {
+        int d = Sobol.MAX_DIM + 1;
+        new Sobol(new Vector(d), Vector.makeVector(d, i -> 1));
+    }
+
+    @Test
+    public void testSobol() {
+        // the first 2^k-1 points are in distinct intervals of
+        // length 2^-k on each axis, the first one being empty
+        int d = Sobol.MAX_DIM, k = 6;
+        Sobol sobol = new Sobol(new Vector(d), Vector.makeVector(d, i -> 1));
+        boolean[][] seen = new boolean[d][1 << k];
+        for (int p = 1; p < 1 << k; p++) {
+            Vector x = sobol.next();
+            for (int i = 0; i < d; i++) {
+                int j = (int) (x.get(i) * (1 << k));
+                assertTrue(j > 0 && !seen[i][j]);
+                seen[i][j] = true;
+            }
+        }
+    }
+
+    @Test
+    public void testLatinHypercube() {
+        int n = 10;
+        LatinHypercube lhs = new LatinHypercube(lo, hi, n, 1);
+        boolean[][] seen = new boolean[2][n];
+        for (int p = 0; p < n; p++) {
+            Vector x = lhs.next();
+            for (int i = 0; i < 2; i++) {
+                int j = (int) ((x.get(i) - lo.get(i)) / (hi.get(i) - lo.get(i)) * n);
+                assertTrue(!seen[i][j]);
+                seen[i][j] = true;
+            }
+        }
+    }
+}
@@ -26,6 +26,13 @@ public class TestQuadraForm {
         assertTrue(q.grad(x).equals(new Vector(new double[]{-3, -6})));
     }
 
+    @Test
+    public void testEvalWithGrad() {
+        Vector g = new Vector(2);
+        assertEquals(13.5, q.evalWithGrad(x, g), 0.0);
+        assertTrue(g.equals(new Vector(new double[]{-3, -6})));
+    }
+
     @Test
     public void testDim() {
         assertEquals(q.dim(), 2);
@@ -0,0 +1,70 @@
+package tests;
+
+import ad.Arithmetic;
+import ad.ForwardDiff;
+import ad.Formula;
+import ad.ReverseDiff;
+import func.Rosenbrock;
+import org.junit.Test;
+import util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestReverseDiff {
+
+    public static double precision = 1e-10;
+
+    @Test
+    public void testRosenbrock() {
+        Rosenbrock r = new Rosenbrock();
+        ReverseDiff f = new ReverseDiff(TestForwardDiff.rosenbrock);
+        Vector x = new Vector(new double[]{-1.2, 1});
+        assertEquals(r.eval(x), f.eval(x), precision);
+        assertEquals(0, f.grad(x).sub(r.grad(x)).norm(), precision);
+    }
+
+    @Test
+    public void testStaticGraph() {
+        ForwardDiff f = new ForwardDiff(TestForwardDiff.mixed);
+        ReverseDiff[] r = {new ReverseDiff(TestForwardDiff.mixed), new ReverseDiff(TestForwardDiff.mixed, true)};
+        for (int k = 0; k < 3; k++) {
+            final int shift = k;
+            Vector x = Vector.makeVector(10, i -> 0.3 * i - shift);
+            for (ReverseDiff g : r) {
+                assertEquals(f.eval(x), g.eval(x), precision);
+                assertEquals(0, g.grad(x).sub(f.grad(x)).norm(), precision);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeDimension() {
+        // sum_i (x_i - x_{i+1})^2 + (x_i - 1)^2 in dimension 50000
+        final int n = 50000;
+        Formula chain = new Formula() {
+            public int dim() {
+                return n;
+            }
+
+            public int eval(Arithmetic a) {
+                int s = a.sqr(a.sub(a.var(n - 1), a.cst(1)));
+                for (int i = 0; i < n - 1; i++) {
+                    int x = a.var(i);
+                    s = a.add(s, a.add(a.sqr(a.sub(x, a.var(i + 1))), a.sqr(a.sub(x, a.cst(1)))));
+                }
+                return s;
+            }
+        };
+        ReverseDiff f = new ReverseDiff(chain, true);
+        Vector x = Vector.makeVector(n, i -> i % 3);
+        for (int k = 0; k < 2; k++) { // recorded, then replayed
+            Vector g = f.grad(x);
+            for (int i = 0; i < n; i++) {
+                double gi = 2 * (x.get(i) - 1);
+                if (i < n - 1) gi += 2 * (x.get(i) - x.get(i + 1));
+                if (i > 0) gi -= 2 * (x.get(i - 1) - x.get(i));
+                assertEquals(gi, g.get(i), precision);
+            }
+        }
+    }
+}
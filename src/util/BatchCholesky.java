@@ -0,0 +1,60 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Solution of many small independent symmetric positive definite
+ * systems A_k x_k = b_k, e.g., the minimizers of quadratic forms
+ * 1/2 x^T A_k x - b_k^T x (see func.QuadraForm).
+ * <p>
+ * No object is built per problem: the matrices, the right-hand sides and
+ * the solutions are packed in three arrays (one for each kind of data),
+ * problem after problem:
+ * <pre>
+ *   A_k[i,j] = a[k*n*n + i*n + j],   b_k[i] = b[k*n + i],   x_k[i] = x[k*n + i].
+ * </pre>
+ * The problems are solved by Cholesky factorization, in parallel (see
+ * Parallel) by blocks of problems, each block reusing one workspace.
+ */
+public final class BatchCholesky {
+
+    private BatchCholesky() {
+    }
+
+    /**
+     * Solve the systems A_k x_k = b_k, for k in [0, count).
+     * <p>
+     * The solution of a system whose matrix is not (numerically)
+     * positive definite is filled with NaN.
+     *
+     * @param n     dimension of the systems
+     * @param count number of systems
+     * @param a     the matrices (count*n*n values; only the lower triangles are read)
+     * @param b     the right-hand sides (count*n values)
+     * @param x     the solutions (count*n values, may be b itself)
+     * @return the number of systems not solved
+     */
+    public static int solve(int n, int count, double[] a, double[] b, double[] x) {
+        assert (a.length >= (long) count * n * n && b.length >= count * n && x.length >= count * n);
+
+        // about n^3/3 for the factorization and 2n^2 for the solve
+        long cost = (long) n * n * n / 3 + 2L * n * n;
+        double failures = Parallel.sumRows(count, cost, (from, to) -> {
+            double[] l = new double[n * n]; // workspace of the block
+            int failed = 0;
+            for (int k = from; k < to; k++) {
+                if (x != b) System.arraycopy(b, k * n, x, k * n, n);
+                try {
+                    CholeskyDecomposition.factor(a, k * n * n, l, n);
+                    CholeskyDecomposition.forward(l, n, x, k * n);
+                    CholeskyDecomposition.backward(l, n, x, k * n);
+                } catch (Singularity e) {
+                    Arrays.fill(x, k * n, (k + 1) * n, Double.NaN);
+                    failed++;
+                }
+            }
+            return failed;
+        });
+        return (int) failures;
+    }
+}
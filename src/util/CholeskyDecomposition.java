@@ -0,0 +1,197 @@
+package util;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Cholesky decomposition A = L*L^T of a symmetric positive definite matrix.
+ * <p>
+ * Compared to LUDecomposition, the factorization needs half the
+ * operations and no pivoting. It is also the cheapest way to check that
+ * a symmetric matrix is positive definite: the constructor raises
+ * Singularity if it is not.
+ * <p>
+ * Only the lower triangle of A is read. L is stored in a row-major array
+ * (the upper triangle is left to zero).
+ */
+public class CholeskyDecomposition {
+
+    private final int n;      // dimension
+    private final double[] l; // L
+
+    /**
+     * Build the Cholesky decomposition of A.
+     *
+     * @throws Singularity if A is not (numerically) positive definite
+     */
+    public CholeskyDecomposition(Matrix A) throws Singularity {
+        assert (A.nb_rows() == A.nb_cols());
+
+        this.n = A.nb_rows();
+        this.l = new double[n * n];
+
+        factor(A.array(), 0, l, n);
+    }
+
+    /*
+     * Factorize the matrix A stored (row-major) in a from aOff, into l.
+     * Only the lower triangles of A and L are read and written.
+     */
+    static void factor(double[] a, int aOff, double[] l, int n) throws Singularity {
+        Kernels k = Kernels.INSTANCE;
+
+        // Row-oriented (Cholesky-Banachiewicz) factorization:
+        //   L[i,j] = (A[i,j] - <L[i,0:j], L[j,0:j]>) / L[j,j]
+        // (the dot products scan contiguous rows of L).
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double s = a[aOff + i * n + j] - k.dot(l, i * n, l, j * n, j);
+                if (i == j) {
+                    if (!(s > 0)) throw new Singularity(); // also catches NaN
+                    l[i * n + i] = sqrt(s);
+                } else {
+                    l[i * n + j] = s / l[j * n + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the dimension n of A
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @return a copy of L
+     */
+    public Matrix getL() {
+        Matrix L = new Matrix(n, n);
+        System.arraycopy(l, 0, L.array(), 0, n * n);
+        return L;
+    }
+
+    /**
+     * @return det(A)
+     */
+    public double determinant() {
+        double det = 1;
+        for (int i = 0; i < n; i++) det *= l[i * n + i];
+        return det * det;
+    }
+
+    /**
+     * @return x such that A*x = b
+     */
+    public Vector solve(Vector b) {
+        return solveInto(b, new Vector(n));
+    }
+
+    /**
+     * x := A^{-1} * b (no allocation). x may be b itself.
+     *
+     * @return x
+     */
+    public Vector solveInto(Vector b, Vector x) {
+        assert (n == b.size() && n == x.size());
+        double[] z = x.writable();
+        if (x != b) x.set(b);
+        forward(l, n, z, 0);
+        backward(l, n, z, 0);
+        return x;
+    }
+
+    /**
+     * @return X such that A*X = B
+     */
+    public Matrix solve(Matrix B) {
+        assert (n == B.nb_rows());
+
+        int m = B.nb_cols();
+        Matrix X = new Matrix(B);
+        double[] x = X.array();
+        Kernels k = Kernels.INSTANCE;
+
+        // solve LY=B (row by row, all the right-hand sides together)
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                k.axpy(-l[i * n + j], x, j * m, x, i * m, m);
+            }
+            double lii = l[i * n + i];
+            for (int c = i * m; c < (i + 1) * m; c++) x[c] /= lii;
+        }
+
+        // solve L^T X=Y
+        for (int i = n - 1; i >= 0; i--) {
+            double lii = l[i * n + i];
+            for (int c = i * m; c < (i + 1) * m; c++) x[c] /= lii;
+            for (int j = 0; j < i; j++) {
+                k.axpy(-l[i * n + j], x, i * m, x, j * m, m);
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Update the decomposition so that it becomes the decomposition
+     * of A + v*v^T, in O(n^2).
+     */
+    public void update(Vector v) {
+        rank1(v, 1);
+    }
+
+    /**
+     * Update the decomposition so that it becomes the decomposition
+     * of A - v*v^T, in O(n^2).
+     *
+     * @throws Singularity if A - v*v^T is not positive definite
+     *                     (the decomposition is then left unchanged).
+     */
+    public void downdate(Vector v) throws Singularity {
+        // A - v*v^T is positive definite iff ||L^{-1} v|| < 1
+        double[] p = v.array().clone();
+        forward(l, n, p, 0);
+        if (!(Kernels.INSTANCE.norm2(p, 0, n) < 1)) throw new Singularity();
+        rank1(v, -1);
+    }
+
+    /*
+     * Rank-one modification of L by sigma*v*v^T (sigma=+1 or -1).
+     */
+    private void rank1(Vector v, double sigma) {
+        assert (n == v.size());
+        double[] x = v.array().clone();
+        for (int k = 0; k < n; k++) {
+            double lkk = l[k * n + k];
+            double r = sqrt(lkk * lkk + sigma * x[k] * x[k]);
+            double c = r / lkk;
+            double s = x[k] / lkk;
+            l[k * n + k] = r;
+            for (int i = k + 1; i < n; i++) {
+                l[i * n + k] = (l[i * n + k] + sigma * s * x[i]) / c;
+                x[i] = c * x[i] - s * l[i * n + k];
+            }
+        }
+    }
+
+    /*
+     * z := L^{-1} z (z stored in z from zOff)
+     */
+    static void forward(double[] l, int n, double[] z, int zOff) {
+        Kernels k = Kernels.INSTANCE;
+        for (int i = 0; i < n; i++) {
+            z[zOff + i] = (z[zOff + i] - k.dot(l, i * n, z, zOff, i)) / l[i * n + i];
+        }
+    }
+
+    /*
+     * z := L^{-T} z (z stored in z from zOff)
+     */
+    static void backward(double[] l, int n, double[] z, int zOff) {
+        for (int i = n - 1; i >= 0; i--) {
+            z[zOff + i] /= l[i * n + i];
+            // column i of L^T is row i of L
+            Kernels.INSTANCE.axpy(-z[zOff + i], l, i * n, z, zOff, i);
+        }
+    }
+}
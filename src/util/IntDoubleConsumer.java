@@ -0,0 +1,5 @@
+package util;
+
+public interface IntDoubleConsumer {
+    void accept(int index, double value);
+}
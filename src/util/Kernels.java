@@ -0,0 +1,94 @@
+package util;
+
+/**
+ * Low-level loops on arrays of doubles used by Vector and Matrix.
+ * <p>
+ * This class is the portable (scalar) implementation. An accelerated
+ * implementation based on the Vector API of the JDK (jdk.incubator.vector),
+ * SimdKernels, can be found in the "src-simd" folder. Since this module is
+ * still incubating, it is compiled and run separately with
+ * <pre>
+ *   javac --add-modules jdk.incubator.vector -cp bin -d bin src-simd/util/SimdKernels.java
+ *   java --add-modules jdk.incubator.vector ...
+ * </pre>
+ * The implementation is chosen once, at startup: SimdKernels if it can be
+ * loaded, this class otherwise. Setting the system property
+ * "util.kernels" to "scalar" forces the portable implementation.
+ */
+class Kernels {
+
+    /**
+     * The implementation used by Vector and Matrix.
+     */
+    static final Kernels INSTANCE = load();
+
+    private static Kernels load() {
+        if ("scalar".equals(System.getProperty("util.kernels")))
+            return new Kernels();
+        try {
+            return (Kernels) Class.forName("util.SimdKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // class not compiled, module jdk.incubator.vector not available
+            // or no SIMD support
+            return new Kernels();
+        }
+    }
+
+    /**
+     * Name of the implementation (for logs)
+     */
+    String name() {
+        return "scalar";
+    }
+
+    /**
+     * Return sum a[aOff+i]*b[bOff+i] for i=0..len-1.
+     */
+    double dot(double[] a, int aOff, double[] b, int bOff, int len) {
+        double s = 0;
+        for (int i = 0; i < len; i++) s += a[aOff + i] * b[bOff + i];
+        return s;
+    }
+
+    /**
+     * Return sum a[off+i]^2 for i=0..len-1.
+     */
+    double norm2(double[] a, int off, int len) {
+        double s = 0;
+        for (int i = 0; i < len; i++) s += a[off + i] * a[off + i];
+        return s;
+    }
+
+    /**
+     * y[yOff+i] += alpha*x[xOff+i] for i=0..len-1.
+     */
+    void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int len) {
+        for (int i = 0; i < len; i++) y[yOff + i] += alpha * x[xOff + i];
+    }
+
+    /**
+     * y[from..to) := A[from..to, :] * x, where A is a row-major matrix with n columns.
+     * <p>
+     * Four rows are processed at once so that each x[j] loaded
+     * from memory is used four times.
+     */
+    void gemv(double[] a, int n, double[] x, double[] y, int from, int to) {
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            int r0 = i * n, r1 = r0 + n, r2 = r1 + n, r3 = r2 + n;
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            for (int j = 0; j < n; j++) {
+                double xj = x[j];
+                s0 += a[r0 + j] * xj;
+                s1 += a[r1 + j] * xj;
+                s2 += a[r2 + j] * xj;
+                s3 += a[r3 + j] * xj;
+            }
+            y[i] = s0;
+            y[i + 1] = s1;
+            y[i + 2] = s2;
+            y[i + 3] = s3;
+        }
+        for (; i < to; i++) y[i] = dot(a, i * n, x, 0, n);
+    }
+}
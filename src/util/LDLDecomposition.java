@@ -0,0 +1,139 @@
+package util;
+
+import static java.lang.Math.abs;
+
+/**
+ * Decomposition A = L*D*L^T of a symmetric positive semidefinite matrix,
+ * where L is unit lower triangular and D is diagonal.
+ * <p>
+ * Unlike CholeskyDecomposition, no square root is taken, so the
+ * factorization also goes through singular (semidefinite) matrices:
+ * a zero pivot simply gives a zero entry in D. Solving a system then
+ * requires D to have no zero entry.
+ * <p>
+ * Only the lower triangle of A is read. L (diagonal not stored) and D
+ * are stored in a single row-major array.
+ */
+public class LDLDecomposition {
+
+    /**
+     * Relative threshold under which a pivot is considered as zero.
+     */
+    private final static double TOO_SMALL = 1e-12;
+
+    private final int n;       // dimension
+    private final double[] ld; // L (below the diagonal) and D (on the diagonal)
+    private int rank;          // number of non-zero entries in D
+
+    /**
+     * Build the LDL^T decomposition of A.
+     *
+     * @throws Singularity if A is not (numerically) positive semidefinite
+     */
+    public LDLDecomposition(Matrix A) throws Singularity {
+        assert (A.nb_rows() == A.nb_cols());
+
+        this.n = A.nb_rows();
+        this.ld = new double[n * n];
+
+        double[] a = A.array();
+        double[] w = new double[n]; // w[k] = L[j,k]*D[k] for the current row j
+
+        double scale = 0;
+        for (int i = 0; i < n; i++) scale = Math.max(scale, abs(a[i * n + i]));
+        double eps = TOO_SMALL * Math.max(scale, 1);
+
+        Kernels k = Kernels.INSTANCE;
+
+        for (int j = 0; j < n; j++) {
+            for (int c = 0; c < j; c++) w[c] = ld[j * n + c] * ld[c * n + c];
+            double dj = a[j * n + j] - k.dot(ld, j * n, w, 0, j);
+            if (dj < -eps || Double.isNaN(dj)) throw new Singularity();
+
+            if (dj <= eps) {
+                // zero pivot: the rest of the column must be zero (semidefinite)
+                ld[j * n + j] = 0;
+                for (int i = j + 1; i < n; i++) {
+                    double s = a[i * n + j] - k.dot(ld, i * n, w, 0, j);
+                    if (abs(s) > eps) throw new Singularity();
+                    ld[i * n + j] = 0;
+                }
+            } else {
+                ld[j * n + j] = dj;
+                rank++;
+                for (int i = j + 1; i < n; i++) {
+                    ld[i * n + j] = (a[i * n + j] - k.dot(ld, i * n, w, 0, j)) / dj;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the dimension n of A
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @return the rank of A (number of non-zero entries of D)
+     */
+    public int rank() {
+        return rank;
+    }
+
+    /**
+     * @return true iff A is positive definite (D has no zero entry)
+     */
+    public boolean isPositiveDefinite() {
+        return rank == n;
+    }
+
+    /**
+     * @return the diagonal of D
+     */
+    public Vector getD() {
+        return Vector.makeVector(n, i -> ld[i * n + i]);
+    }
+
+    /**
+     * @return det(A)
+     */
+    public double determinant() {
+        double det = 1;
+        for (int i = 0; i < n; i++) det *= ld[i * n + i];
+        return det;
+    }
+
+    /**
+     * @return x such that A*x = b
+     * @throws Singularity if A is singular
+     */
+    public Vector solve(Vector b) throws Singularity {
+        return solveInto(b, new Vector(n));
+    }
+
+    /**
+     * x := A^{-1} * b (no allocation). x may be b itself.
+     *
+     * @return x
+     * @throws Singularity if A is singular
+     */
+    public Vector solveInto(Vector b, Vector x) throws Singularity {
+        assert (n == b.size() && n == x.size());
+        if (!isPositiveDefinite()) throw new Singularity();
+        double[] z = x.writable();
+        if (x != b) x.set(b);
+
+        Kernels k = Kernels.INSTANCE;
+
+        // solve Lx=b
+        for (int i = 0; i < n; i++) z[i] -= k.dot(ld, i * n, z, 0, i);
+        // solve Dx=b
+        for (int i = 0; i < n; i++) z[i] /= ld[i * n + i];
+        // solve L^T x=b
+        for (int i = n - 1; i >= 0; i--) k.axpy(-z[i], ld, i * n, z, 0, i);
+
+        return x;
+    }
+}
@@ -0,0 +1,162 @@
+package util;
+
+import static java.lang.Math.abs;
+
+/**
+ * LU decomposition with partial pivoting of a square matrix A.
+ * <p>
+ * The factorization P*A = L*U is computed once, in the constructor,
+ * in O(n^3). Each system A*x = b is then solved in O(n^2), so the same
+ * decomposition can be kept and reused for several right-hand sides
+ * (e.g., at each iteration of a Newton-type method) instead of
+ * forming A^{-1} explicitly.
+ * <p>
+ * L (unit lower triangular, diagonal not stored) and U are stored
+ * together in a single row-major array. Rows are not physically swapped:
+ * the ith row of L*U is stored in row p[i].
+ */
+public class LUDecomposition {
+
+    private final static double TOO_LARGE = 1e30;
+    private final static double TOO_SMALL = 1e-10;
+
+    private final int n;      // dimension
+    private final double[] lu; // L and U
+    private final int[] p;     // permutation
+    private final int sign;    // signature of the permutation (+1/-1)
+
+    /**
+     * Build the LU decomposition of A.
+     *
+     * @throws Singularity if A is not invertible
+     */
+    public LUDecomposition(Matrix A) throws Singularity {
+        assert (A.nb_rows() == A.nb_cols());
+
+        this.n = A.nb_rows();
+        this.lu = A.array().clone();
+        this.p = new int[n];
+
+        // check the matrix has no "infinite" values
+        for (double d : lu)
+            if (abs(d) >= TOO_LARGE) throw new Singularity();
+
+        for (int i = 0; i < n; i++) p[i] = i;
+
+        int s = 1;
+
+        for (int i = 0; i < n; i++) {
+            // pivot search
+            int swap = i;
+            for (int j = i + 1; j < n; j++) {
+                if (abs(lu[p[j] * n + i]) > abs(lu[p[swap] * n + i])) swap = j;
+            }
+            if (swap != i) {
+                int tmp = p[i];
+                p[i] = p[swap];
+                p[swap] = tmp;
+                s = -s;
+            }
+            // --------------------------------------------------
+
+            double pivot = lu[p[i] * n + i];
+            if (pivot == 0.0) throw new Singularity();
+            if (abs(1 / pivot) >= TOO_LARGE) throw new Singularity();
+
+            for (int j = i + 1; j < n; j++) {
+                double l = lu[p[j] * n + i] / pivot;
+                // LU[p[j], i+1:] -= l * LU[p[i], i+1:]
+                Kernels.INSTANCE.axpy(-l, lu, p[i] * n + i + 1, lu, p[j] * n + i + 1, n - i - 1);
+                lu[p[j] * n + i] = l;
+            }
+        }
+        this.sign = s;
+    }
+
+    /**
+     * @return the dimension n of A
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @return det(A)
+     */
+    public double determinant() {
+        double det = sign;
+        for (int i = 0; i < n; i++) det *= lu[p[i] * n + i];
+        return det;
+    }
+
+    /**
+     * @return x such that A*x = b
+     * @throws Singularity
+     */
+    public Vector solve(Vector b) throws Singularity {
+        return solveInto(b, new Vector(n));
+    }
+
+    /**
+     * x := A^{-1} * b (no allocation). x and b must be different vectors.
+     *
+     * @return x
+     * @throws Singularity
+     */
+    public Vector solveInto(Vector b, Vector x) throws Singularity {
+        assert (n == b.size() && n == x.size() && b != x);
+
+        double[] y = b.array();
+        double[] z = x.writable();
+        Kernels k = Kernels.INSTANCE;
+
+        // solve Lx=b
+        for (int i = 0; i < n; i++) {
+            z[i] = y[p[i]] - k.dot(lu, p[i] * n, z, 0, i);
+        }
+
+        // solve Uy=x
+        for (int i = n - 1; i >= 0; i--) {
+            double uii = lu[p[i] * n + i];
+            if (abs(uii) <= TOO_SMALL) throw new Singularity();
+            z[i] = (z[i] - k.dot(lu, p[i] * n + i + 1, z, i + 1, n - i - 1)) / uii;
+        }
+        return x;
+    }
+
+    /**
+     * @return X such that A*X = B
+     * @throws Singularity
+     */
+    public Matrix solve(Matrix B) throws Singularity {
+        assert (n == B.nb_rows());
+
+        int m = B.nb_cols();
+        double[] b = B.array();
+        Matrix X = new Matrix(n, m);
+        double[] x = X.array();
+        Kernels k = Kernels.INSTANCE;
+
+        // All the right-hand sides are processed together, one row
+        // of X at a time, so that the inner loops scan rows of X.
+
+        // solve LX=B
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(b, p[i] * m, x, i * m, m);
+            for (int j = 0; j < i; j++) {
+                k.axpy(-lu[p[i] * n + j], x, j * m, x, i * m, m);
+            }
+        }
+
+        // solve UY=X
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = i + 1; j < n; j++) {
+                k.axpy(-lu[p[i] * n + j], x, j * m, x, i * m, m);
+            }
+            double uii = lu[p[i] * n + i];
+            if (abs(uii) <= TOO_SMALL) throw new Singularity();
+            for (int c = i * m; c < (i + 1) * m; c++) x[c] /= uii;
+        }
+        return X;
+    }
+}
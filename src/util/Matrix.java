@@ -1,25 +1,32 @@
 package util;
 
-
 import java.util.Arrays;
-import java.util.stream.Stream;
 
-import static java.lang.Math.abs;
-import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.IntStream.range;
-import static util.Vector.makeVector;
 
 /**
  * Matrix (noted "M" in comments)
+ * <p>
+ * The coefficients are stored in a single array, row by row
+ * (M[i,j] is data[i*n+j]).
+ * <p>
+ * Products, transposition and sums of large matrices are run
+ * in parallel over blocks of rows (see Parallel).
  *
  * @author Gilles Chabert
  */
-public class Matrix {
+public class Matrix implements RealMatrix {
+
+    /**
+     * Size of the square tiles used by the
+     * blocked matrix-matrix product and transposition.
+     */
+    private final static int BLOCK = 64;
 
     private int m;         // number of rows
     private int n;         // number of columns
-    private Vector[] rows; // vector of rows
+    private double[] data; // row-major coefficients
 
     /**
      * Build a m*n matrix filled with zeros.
@@ -27,7 +34,7 @@ public class Matrix {
     public Matrix(int m, int n) {
         this.n = n;
         this.m = m;
-        this.rows = range(0, m).mapToObj(i -> new Vector(n)).toArray(Vector[]::new);
+        this.data = new double[m * n];
     }
 
     /**
@@ -35,12 +42,11 @@ public class Matrix {
      * vals[i] represents the ith row.
      */
     public Matrix(double[][] vals) {
-        this.m = vals.length;
-        this.n = vals[0].length;
-        this.rows = stream(vals).map(val -> {
-            assert (val.length == n);
-            return new Vector(val);
-        }).toArray(Vector[]::new);
+        this(vals.length, vals[0].length);
+        for (int i = 0; i < m; i++) {
+            assert (vals[i].length == n);
+            System.arraycopy(vals[i], 0, data, i * n, n);
+        }
     }
 
     /**
@@ -51,8 +57,7 @@ public class Matrix {
     public Matrix(Matrix mat) {
         this.n = mat.nb_cols();
         this.m = mat.nb_rows();
-        //mat.rows.clone() ?
-        this.rows = stream(mat.rows).toArray(Vector[]::new);
+        this.data = mat.data.clone();
     }
 
     public static Matrix makeMatrix(int n, IntToDoubleBinaryOperator valueBuilder) {
@@ -66,18 +71,20 @@ public class Matrix {
      * @return a Matrix whose values are the output of valueBuilder.
      */
     private static Matrix makeMatrix(int m, int n, IntToDoubleBinaryOperator valueBuilder) {
-        return new Matrix(range(0, m).mapToObj(i -> makeRow(n, i, valueBuilder)).toArray(double[][]::new));
-    }
-
-    private static double[] makeRow(int n, int i, IntToDoubleBinaryOperator valueBuilder) {
-        return range(0, n).mapToDouble(j -> valueBuilder.applyAsDouble(i, j)).toArray();
+        Matrix M = new Matrix(m, n);
+        for (int i = 0; i < m; i++)
+            for (int j = 0; j < n; j++)
+                M.data[i * n + j] = valueBuilder.applyAsDouble(i, j);
+        return M;
     }
 
     /**
      * Build the nxn identity matrix.
      */
     public static Matrix identity(int n) {
-        return makeMatrix(n, (i, j) -> i == j ? 1 : 0);
+        Matrix I = new Matrix(n, n);
+        for (int i = 0; i < n; i++) I.data[i * n + i] = 1;
+        return I;
     }
 
     public static void main(String[] args) {
@@ -112,11 +119,19 @@ public class Matrix {
         return n;
     }
 
+    /*
+     * Direct access to the underlying array (no copy),
+     * for the classes of this package.
+     */
+    double[] array() {
+        return data;
+    }
+
     /**
      * @return M[i, j]
      */
     public double get(int i, int j) {
-        return rows[i].get(j);
+        return data[i * n + j];
     }
 
     /**
@@ -124,7 +139,9 @@ public class Matrix {
      */
     public Vector get_row(int r) {
         assert (r >= 0 && r < nb_rows());
-        return new Vector(rows[r]);
+        Vector row = new Vector(n);
+        System.arraycopy(data, r * n, row.array(), 0, n);
+        return row;
     }
 
     /**
@@ -132,14 +149,25 @@ public class Matrix {
      */
     public Vector get_col(int c) {
         assert (c >= 0 && c < nb_cols());
-        return makeVector(nb_rows(), i -> get(i, c));
+        Vector col = new Vector(m);
+        double[] y = col.array();
+        for (int i = 0; i < m; i++) y[i] = data[i * n + c];
+        return col;
+    }
+
+    @Override
+    public void forEachInRow(int i, IntDoubleConsumer action) {
+        for (int j = 0; j < n; j++) {
+            double d = data[i * n + j];
+            if (d != 0) action.accept(j, d);
+        }
     }
 
     /**
      * M[i,j]:=d
      */
     public void set(int i, int j, double d) {
-        rows[i].set(j, d);
+        data[i * n + j] = d;
     }
 
     /**
@@ -148,7 +176,7 @@ public class Matrix {
     public void set_row(int r, Vector v) {
         assert (r >= 0 && r < nb_rows());
         assert (nb_cols() == v.size());
-        rows[r] = new Vector(v);
+        System.arraycopy(v.array(), 0, data, r * n, n);
     }
 
     /**
@@ -157,24 +185,53 @@ public class Matrix {
     public void set_col(int c, Vector v) {
         assert (c >= 0 && c < nb_cols());
         assert (nb_rows() == v.size());
-
-        for (int i = 0; i < nb_rows(); i++)
-            set(i, c, v.get(i));
+        double[] x = v.array();
+        for (int i = 0; i < m; i++) data[i * n + c] = x[i];
     }
 
     /**
      * @return this * v
      */
     public Vector mult(Vector v) {
-        assert (v.size() == n);
-        return new Vector(stream(rows).mapToDouble(row -> row.scalar(v)).toArray());
+        return multInto(v, new Vector(m));
+    }
+
+    /**
+     * y := this * v (no allocation).
+     *
+     * @return y
+     */
+    public Vector multInto(Vector v, Vector y) {
+        assert (v.size() == n && y.size() == m && y != v);
+        double[] x = v.array();
+        double[] res = y.writable();
+        Parallel.forRows(m, n, (from, to) -> Kernels.INSTANCE.gemv(data, n, x, res, from, to));
+        return y;
+    }
+
+    /**
+     * @return u^T * this * v (no allocation)
+     */
+    public double bilinear(Vector u, Vector v) {
+        assert (u.size() == m && v.size() == n);
+        double[] x = u.array();
+        double[] y = v.array();
+        return Parallel.sumRows(m, n, (from, to) -> {
+            double s = 0;
+            for (int i = from; i < to; i++) {
+                s += x[i] * Kernels.INSTANCE.dot(data, i * n, y, 0, n);
+            }
+            return s;
+        });
     }
 
     /**
      * @return this^T
      */
     public Matrix transpose() {
-        return makeMatrix(n, m, (i, j) -> get(j, i));
+        Matrix T = new Matrix(n, m);
+        Parallel.forRows(n, m, (from, to) -> transpose(data, m, n, T.data, from, to));
+        return T;
     }
 
     /**
@@ -182,29 +239,22 @@ public class Matrix {
      * @throws Singularity
      */
     public Matrix inverse() throws Singularity {
-        Matrix LU = new Matrix(n, n);
-        Matrix invA = new Matrix(n, n);
-        int[] p = new int[n];
-
-        real_LU(LU, p);
-
-        Vector b = new Vector(n);
-        Vector x = new Vector(n);
+        return new LUDecomposition(this).solve(identity(n));
+    }
 
-        for (int i = 0; i < n; i++) {
-            b.set(i, 1);
-            real_LU_solve(LU, p, b, x);
-            invA.set_col(i, x);
-            b.set(i, 0);
-        }
-        return invA;
+    /**
+     * @return x such that this * x = b
+     * @throws Singularity
+     */
+    public Vector solve(Vector b) throws Singularity {
+        return new LUDecomposition(this).solve(b);
     }
 
     /**
      * @return -M
      */
     public Matrix minus() {
-        return makeMatrix(m, n, (i, j) -> -1 * get(i, j));
+        return leftmul(-1);
     }
 
     /**
@@ -213,7 +263,9 @@ public class Matrix {
     public Matrix add(Matrix M) {
         assert (M.nb_rows() == m);
         assert (M.nb_cols() == n);
-        return makeMatrix(m, n, (i, j) -> get(i, j) + M.get(i, j));
+        Matrix R = new Matrix(m, n);
+        Parallel.forRows(m, n, (from, to) -> axpy(1, M.data, data, R.data, from * n, to * n));
+        return R;
     }
 
     /**
@@ -222,7 +274,9 @@ public class Matrix {
     public Matrix sub(Matrix M) {
         assert (M.nb_rows() == m);
         assert (M.nb_cols() == n);
-        return makeMatrix(m, n, (i, j) -> get(i, j) - M.get(i, j));
+        Matrix R = new Matrix(m, n);
+        Parallel.forRows(m, n, (from, to) -> axpy(-1, M.data, data, R.data, from * n, to * n));
+        return R;
     }
 
     /**
@@ -230,109 +284,101 @@ public class Matrix {
      */
     public Matrix mult(Matrix M) {
         assert (M.nb_rows() == n);
-        return makeMatrix(m, M.nb_cols(), (i, j) -> get_row(i).scalar(M.get_col(j)));
+        int p = M.nb_cols();
+        Matrix R = new Matrix(m, p);
+        Parallel.forRows(m, (long) n * p, (from, to) -> gemm(data, M.data, R.data, n, p, from, to));
+        return R;
     }
 
     public Matrix leftmul(double lambda) {
-        return makeMatrix(m, n, (i, j) -> lambda * get(i, j));
+        Matrix R = new Matrix(m, n);
+        Parallel.forRows(m, n, (from, to) -> {
+            for (int k = from * n; k < to * n; k++) R.data[k] = lambda * data[k];
+        });
+        return R;
+    }
+
+    /**
+     * M := lambda*I (in place, M being square).
+     */
+    public void setIdentity(double lambda) {
+        assert (m == n);
+        Arrays.fill(data, 0);
+        for (int i = 0; i < n; i++) data[i * n + i] = lambda;
+    }
+
+    /**
+     * M := M + a*u*v^T (rank-one update in place, no allocation).
+     */
+    public void rank1Update(double a, Vector u, Vector v) {
+        assert (u.size() == m && v.size() == n);
+        double[] x = u.array();
+        double[] y = v.array();
+        Parallel.forRows(m, n, (from, to) -> {
+            for (int i = from; i < to; i++)
+                Kernels.INSTANCE.axpy(a * x[i], y, 0, data, i * n, n);
+        });
     }
 
     /**
      * @return M as a string
      */
     public String toString() {
-        return stream(rows).map(Vector::toString).collect(joining("\n", "(", ")"));
+        return range(0, m).mapToObj(this::get_row).map(Vector::toString).collect(joining("\n", "(", ")"));
     }
 
+    // ============================== kernels ==============================
+    //
+    // Each kernel works on a range of rows [from, to) of its output,
+    // so that it can be applied to independent row blocks (see Parallel).
+
     /*
-     * Build a LU decomposition of M.
-     *
-     * @param LU - a n*n matrix (to be filled)
-     * @param p  - a n-sized permutation vector (to be filled)
-     * @throws SingularMatrixException if M is not invertible
+     * r[from..to) := y[from..to) + a*x[from..to)
      */
-    private void real_LU(Matrix LU, int p[]) throws Singularity {
-        double TOO_LARGE = 1e30;
+    private static void axpy(double a, double[] x, double[] y, double[] r, int from, int to) {
+        for (int k = from; k < to; k++) r[k] = y[k] + a * x[k];
+    }
 
-        assert (m == n);
-        assert (n == (LU.nb_rows()) && n == (LU.nb_cols()));
-        assert (n == p.length);
-
-        // check the matrix has no "infinite" values
-        if (steamRows().flatMap(row -> row.stream().boxed()).anyMatch(i -> abs(i) >= TOO_LARGE))
-            throw new Singularity();
-
-        LU = new Matrix(this);
-        p = range(0, n).toArray();
-
-        // LU computation
-        double pivot;
-
-        for (int i = 0; i < n; i++) {
-            // pivot search
-            int swap = i;
-            pivot = LU.get(p[i], i);
-            for (int j = i + 1; j < n; j++) {
-                double tmp = LU.get(p[j], i);
-                if (abs(tmp) > abs(LU.get(p[swap], i))) swap = j;
-            }
-            int tmp = p[i];
-            p[i] = p[swap];
-            p[swap] = tmp;
-            // --------------------------------------------------
-
-            pivot = LU.get(p[i], i);
-            if (pivot == 0.0) throw new Singularity();
-            if (abs(1 / pivot) >= TOO_LARGE) throw new Singularity();
-
-            for (int j = i + 1; j < n; j++) {
-                for (int k = i + 1; k < n; k++) {
-                    //cout << LU.get(p[j]][k] << " " << LU.get(p[j]][i] << " " << pivot << endl;
-                    LU.set(p[j], k, LU.get(p[j], k) - LU.get(p[j], i) / pivot * LU.get(p[i], k));
+    /*
+     * C[from..to, :] := A[from..to, :] * B, where A has n columns and B, C have p columns.
+     *
+     * The loops are tiled so that a BLOCKxBLOCK tile of B stays
+     * in cache while it is used, and the innermost loop scans
+     * rows of B and C contiguously.
+     */
+    private static void gemm(double[] a, double[] b, double[] c, int n, int p, int from, int to) {
+        for (int ii = from; ii < to; ii += BLOCK) {
+            int iMax = Math.min(ii + BLOCK, to);
+            for (int kk = 0; kk < n; kk += BLOCK) {
+                int kMax = Math.min(kk + BLOCK, n);
+                for (int jj = 0; jj < p; jj += BLOCK) {
+                    int jMax = Math.min(jj + BLOCK, p);
+                    for (int i = ii; i < iMax; i++) {
+                        int ci = i * p;
+                        for (int k = kk; k < kMax; k++) {
+                            double aik = a[i * n + k];
+                            int bk = k * p;
+                            for (int j = jj; j < jMax; j++) c[ci + j] += aik * b[bk + j];
+                        }
+                    }
                 }
-                LU.set(p[j], i, LU.get(p[j], i) / pivot);
             }
         }
     }
 
-    private Stream<Vector> steamRows() {
-        return Arrays.stream(rows);
-    }
-
     /*
-     * Solve LU x = b with permutation matrix P.
-     * @throws SingularMatrixException
+     * T[from..to, :] := (A^T)[from..to, :] where A is a m*n row-major matrix
+     * (so T has m columns and rows from..to are columns of A).
      */
-    private void real_LU_solve(Matrix LU, int[] p, Vector b, Vector x) throws Singularity {
-        //cout << "LU=" << LU << " b=" << b << endl;
-
-        double TOO_SMALL = 1e-10;
-
-        int n = (LU.nb_rows());
-        assert (n == (LU.nb_cols())); // throw NotSquareMatrixException();
-        assert (n == (b.size()) && n == (x.size()));
-
-        // solve Lx=b
-        x.set(0, b.get(p[0]));
-        for (int i = 1; i < n; i++) {
-            x.set(i, b.get(p[i]));
-            for (int j = 0; j < i; j++) {
-                x.set(i, x.get(i) - LU.get(p[i], j) * x.get(j));
-            }
-        }
-        //cout << " x1=" << x << endl;
-
-        // solve Uy=x
-        if (abs(LU.get(p[n - 1], n - 1)) <= TOO_SMALL) throw new Singularity();
-        x.set(n - 1, x.get(n - 1) / LU.get(p[n - 1], n - 1));
-
-        for (int i = n - 2; i >= 0; i--) {
-            for (int j = i + 1; j < n; j++) {
-                x.set(i, x.get(i) - LU.get(p[i], j) * x.get(j));
+    private static void transpose(double[] a, int m, int n, double[] t, int from, int to) {
+        for (int ii = 0; ii < m; ii += BLOCK) {
+            int iMax = Math.min(ii + BLOCK, m);
+            for (int jj = from; jj < to; jj += BLOCK) {
+                int jMax = Math.min(jj + BLOCK, to);
+                for (int i = ii; i < iMax; i++)
+                    for (int j = jj; j < jMax; j++)
+                        t[j * m + i] = a[i * n + j];
             }
-            if (abs(LU.get(p[i], i)) <= TOO_SMALL) throw new Singularity();
-            x.set(i, x.get(i) / LU.get(p[i], i));
         }
-        //cout << " x2=" << x << endl;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join execution of row-block kernels.
+ * <p>
+ * A kernel is applied to a range of rows [from, to). When the total
+ * amount of work (number of rows * cost of one row) exceeds the threshold,
+ * the range is split in two halves recursively and the blocks are
+ * run in parallel in the pool. Otherwise the kernel is simply called
+ * on the whole range, in the calling thread, so that small matrices
+ * do not pay the overhead of tasks.
+ */
+public final class Parallel {
+
+    /**
+     * Default threshold: about 2^18 multiply-adds (e.g., a 512x512
+     * matrix-vector product) per task.
+     */
+    public final static long DEFAULT_THRESHOLD = 1L << 18;
+
+    private static volatile long threshold = DEFAULT_THRESHOLD;
+
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * A kernel on a range of rows.
+     */
+    public interface RowKernel {
+        void apply(int from, int to);
+    }
+
+    /**
+     * A kernel on a range of rows that returns a partial sum.
+     */
+    public interface RowSum {
+        double apply(int from, int to);
+    }
+
+    private Parallel() {
+    }
+
+    /**
+     * Set the minimal amount of work (in elementary operations) that
+     * justifies parallel execution. Long.MAX_VALUE means "always sequential".
+     */
+    public static void setThreshold(long threshold) {
+        assert (threshold > 0);
+        Parallel.threshold = threshold;
+    }
+
+    /**
+     * Get the minimal amount of work for parallel execution.
+     */
+    public static long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Set the pool in which the row blocks are run
+     * (the common pool by default).
+     */
+    public static void setPool(ForkJoinPool pool) {
+        Parallel.pool = pool;
+    }
+
+    /**
+     * Get the pool in which the row blocks are run.
+     */
+    public static ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Apply the kernel on the rows [0, rows).
+     *
+     * @param rows    number of rows
+     * @param rowCost number of elementary operations for one row
+     * @param kernel  the kernel
+     */
+    public static void forRows(int rows, long rowCost, RowKernel kernel) {
+        long grain = grain(rows, rowCost);
+        if (grain >= rows || pool.getParallelism() == 1)
+            kernel.apply(0, rows);
+        else
+            pool.invoke(new Block(kernel, 0, rows, (int) grain));
+    }
+
+    /**
+     * Apply the kernel on the rows [0, rows) and
+     * return the sum of the partial results.
+     *
+     * @param rows    number of rows
+     * @param rowCost number of elementary operations for one row
+     * @param kernel  the kernel
+     */
+    public static double sumRows(int rows, long rowCost, RowSum kernel) {
+        long grain = grain(rows, rowCost);
+        if (grain >= rows || pool.getParallelism() == 1)
+            return kernel.apply(0, rows);
+        else
+            return pool.invoke(new SumBlock(kernel, 0, rows, (int) grain));
+    }
+
+    /*
+     * Maximal number of rows in a sequential block.
+     */
+    private static long grain(int rows, long rowCost) {
+        return Math.max(1, threshold / Math.max(1, rowCost));
+    }
+
+    private static class Block extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final RowKernel kernel;
+        private final int from, to, grain;
+
+        Block(RowKernel kernel, int from, int to, int grain) {
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                kernel.apply(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Block(kernel, from, mid, grain), new Block(kernel, mid, to, grain));
+            }
+        }
+    }
+
+    private static class SumBlock extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private final RowSum kernel;
+        private final int from, to, grain;
+
+        SumBlock(RowSum kernel, int from, int to, int grain) {
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= grain) {
+                return kernel.apply(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                SumBlock left = new SumBlock(kernel, from, mid, grain);
+                left.fork();
+                double right = new SumBlock(kernel, mid, to, grain).compute();
+                return left.join() + right;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package util;
+
+/**
+ * Interface for real matrices, seen as linear maps.
+ * <p>
+ * This is what functions and algorithms need from a matrix, so that
+ * a dense matrix (Matrix) and a sparse one (SparseMatrix) can be used
+ * interchangeably.
+ */
+public interface RealMatrix {
+
+    /**
+     * @return the number of rows
+     */
+    int nb_rows();
+
+    /**
+     * @return the number of columns
+     */
+    int nb_cols();
+
+    /**
+     * @return M[i, j]
+     */
+    double get(int i, int j);
+
+    /**
+     * Call action(j, M[i,j]) for each non-zero coefficient M[i,j] of row i,
+     * by increasing j.
+     */
+    default void forEachInRow(int i, IntDoubleConsumer action) {
+        for (int j = 0; j < nb_cols(); j++) {
+            double d = get(i, j);
+            if (d != 0) action.accept(j, d);
+        }
+    }
+
+    /**
+     * @return this * v
+     */
+    default Vector mult(Vector v) {
+        return multInto(v, new Vector(nb_rows()));
+    }
+
+    /**
+     * y := this * v (no allocation). y and v must be different vectors.
+     *
+     * @return y
+     */
+    Vector multInto(Vector v, Vector y);
+
+    /**
+     * @return u^T * this * v (no allocation)
+     */
+    double bilinear(Vector u, Vector v);
+
+    /**
+     * @return this^T
+     */
+    RealMatrix transpose();
+}
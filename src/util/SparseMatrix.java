@@ -0,0 +1,303 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Sparse matrix in compressed sparse row (CSR) format.
+ * <p>
+ * The non-zero coefficients of row i are val[ptr[i]..ptr[i+1]), and
+ * their column indices are idx[ptr[i]..ptr[i+1]) (in increasing order).
+ * Storage, as well as the cost of a matrix-vector product, is O(nnz)
+ * instead of O(m*n).
+ * <p>
+ * The same arrays read "by columns" give the compressed sparse column
+ * (CSC) format of the transpose, so transpose() is a view that costs
+ * nothing. Matrices are built with a Builder (coordinate format).
+ */
+public class SparseMatrix implements RealMatrix {
+
+    private final int m;         // number of rows
+    private final int n;         // number of columns
+    private final int[] ptr;     // start of each compressed line (row in CSR, column in CSC)
+    private final int[] idx;     // column (CSR) or row (CSC) index of each coefficient
+    private final double[] val;  // values
+    private final boolean byCol; // true if the arrays are in CSC format
+
+    private SparseMatrix(int m, int n, int[] ptr, int[] idx, double[] val, boolean byCol) {
+        this.m = m;
+        this.n = n;
+        this.ptr = ptr;
+        this.idx = idx;
+        this.val = val;
+        this.byCol = byCol;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    @Override
+    public int nb_rows() {
+        return m;
+    }
+
+    /**
+     * @return the number of columns
+     */
+    @Override
+    public int nb_cols() {
+        return n;
+    }
+
+    /**
+     * @return the number of stored coefficients
+     */
+    public int nnz() {
+        return val.length;
+    }
+
+    /**
+     * @return M[i, j] (in O(log(nnz of the row)))
+     */
+    @Override
+    public double get(int i, int j) {
+        assert (i >= 0 && i < m && j >= 0 && j < n);
+        int line = byCol ? j : i;
+        int k = Arrays.binarySearch(idx, ptr[line], ptr[line + 1], byCol ? i : j);
+        return k >= 0 ? val[k] : 0;
+    }
+
+    /**
+     * In O(nnz of the row) in CSR format.
+     */
+    @Override
+    public void forEachInRow(int i, IntDoubleConsumer action) {
+        if (byCol) {
+            RealMatrix.super.forEachInRow(i, action);
+        } else {
+            for (int k = ptr[i]; k < ptr[i + 1]; k++) action.accept(idx[k], val[k]);
+        }
+    }
+
+    /**
+     * y := this * v (no allocation).
+     * <p>
+     * In CSR format, the rows are computed in parallel for large
+     * matrices (see Parallel). In CSC format (transposed view), the
+     * columns are scattered sequentially.
+     *
+     * @return y
+     */
+    @Override
+    public Vector multInto(Vector v, Vector y) {
+        assert (v.size() == n && y.size() == m && y != v);
+        double[] x = v.array();
+        double[] res = y.writable();
+        if (byCol) {
+            Arrays.fill(res, 0);
+            for (int j = 0; j < n; j++) {
+                double xj = x[j];
+                if (xj == 0) continue;
+                for (int k = ptr[j]; k < ptr[j + 1]; k++) res[idx[k]] += val[k] * xj;
+            }
+        } else {
+            Parallel.forRows(m, Math.max(1, nnz() / Math.max(1, m)), (from, to) -> {
+                for (int i = from; i < to; i++) res[i] = line(i, x);
+            });
+        }
+        return y;
+    }
+
+    /**
+     * @return u^T * this * v (no allocation)
+     */
+    @Override
+    public double bilinear(Vector u, Vector v) {
+        assert (u.size() == m && v.size() == n);
+        // each compressed line is multiplied by the vector of the
+        // other dimension, and weighted by the vector of its own dimension
+        double[] w = (byCol ? v : u).array();
+        double[] x = (byCol ? u : v).array();
+        int lines = byCol ? n : m;
+        return Parallel.sumRows(lines, Math.max(1, nnz() / Math.max(1, lines)), (from, to) -> {
+            double s = 0;
+            for (int i = from; i < to; i++)
+                if (w[i] != 0) s += w[i] * line(i, x);
+            return s;
+        });
+    }
+
+    /**
+     * @return this^T (a view sharing the same arrays)
+     */
+    @Override
+    public SparseMatrix transpose() {
+        return new SparseMatrix(n, m, ptr, idx, val, !byCol);
+    }
+
+    /**
+     * @return this matrix in CSR format (this if it is already the case).
+     * <p>
+     * Useful to get parallel products from a transposed view.
+     */
+    public SparseMatrix toCSR() {
+        if (!byCol) return this;
+        Builder b = new Builder(m, n, nnz());
+        for (int j = 0; j < n; j++)
+            for (int k = ptr[j]; k < ptr[j + 1]; k++) b.add(idx[k], j, val[k]);
+        return b.build();
+    }
+
+    /**
+     * @return this matrix as a dense matrix
+     */
+    public Matrix toDense() {
+        Matrix M = new Matrix(m, n);
+        for (int l = 0; l < ptr.length - 1; l++)
+            for (int k = ptr[l]; k < ptr[l + 1]; k++) {
+                if (byCol) M.set(idx[k], l, val[k]);
+                else M.set(l, idx[k], val[k]);
+            }
+        return M;
+    }
+
+    /**
+     * @return M as a string (dense format)
+     */
+    public String toString() {
+        return toDense().toString();
+    }
+
+    /*
+     * <compressed line l, x>
+     */
+    private double line(int l, double[] x) {
+        double s = 0;
+        for (int k = ptr[l]; k < ptr[l + 1]; k++) s += val[k] * x[idx[k]];
+        return s;
+    }
+
+    /**
+     * Builder of sparse matrices from a list of (i, j, value)
+     * triplets (coordinate, or COO, format).
+     * <p>
+     * Triplets can be added in any order. Values given for the
+     * same (i, j) are summed.
+     */
+    public static class Builder {
+        private final int m;
+        private final int n;
+        private int size;
+        private int[] rows;
+        private int[] cols;
+        private double[] vals;
+
+        /**
+         * Build an empty m*n matrix.
+         */
+        public Builder(int m, int n) {
+            this(m, n, 16);
+        }
+
+        /**
+         * Build an empty m*n matrix with room for "capacity" triplets.
+         */
+        public Builder(int m, int n, int capacity) {
+            this.m = m;
+            this.n = n;
+            this.rows = new int[Math.max(1, capacity)];
+            this.cols = new int[rows.length];
+            this.vals = new double[rows.length];
+        }
+
+        /**
+         * M[i,j] += d
+         *
+         * @return this builder (for chaining)
+         */
+        public Builder add(int i, int j, double d) {
+            assert (i >= 0 && i < m && j >= 0 && j < n);
+            if (size == rows.length) {
+                int capacity = 2 * size;
+                rows = Arrays.copyOf(rows, capacity);
+                cols = Arrays.copyOf(cols, capacity);
+                vals = Arrays.copyOf(vals, capacity);
+            }
+            rows[size] = i;
+            cols[size] = j;
+            vals[size] = d;
+            size++;
+            return this;
+        }
+
+        /**
+         * @return the matrix in CSR format
+         */
+        public SparseMatrix build() {
+            // counting sort of the triplets by row
+            int[] ptr = new int[m + 1];
+            for (int k = 0; k < size; k++) ptr[rows[k] + 1]++;
+            for (int i = 0; i < m; i++) ptr[i + 1] += ptr[i];
+
+            int[] next = Arrays.copyOf(ptr, m);
+            int[] idx = new int[size];
+            double[] val = new double[size];
+            for (int k = 0; k < size; k++) {
+                int pos = next[rows[k]]++;
+                idx[pos] = cols[k];
+                val[pos] = vals[k];
+            }
+
+            // sort each row by column and sum duplicates (in place)
+            int nnz = 0;
+            for (int i = 0; i < m; i++) {
+                int start = ptr[i], end = ptr[i + 1];
+                sortRow(idx, val, start, end);
+                ptr[i] = nnz;
+                for (int k = start; k < end; k++) {
+                    if (nnz > ptr[i] && idx[nnz - 1] == idx[k]) {
+                        val[nnz - 1] += val[k];
+                    } else {
+                        idx[nnz] = idx[k];
+                        val[nnz] = val[k];
+                        nnz++;
+                    }
+                }
+            }
+            ptr[m] = nnz;
+
+            return new SparseMatrix(m, n, ptr, Arrays.copyOf(idx, nnz), Arrays.copyOf(val, nnz), false);
+        }
+
+        /*
+         * Sort idx[start..end) (and val accordingly).
+         */
+        private static void sortRow(int[] idx, double[] val, int start, int end) {
+            int len = end - start;
+            if (len <= 32) {
+                // insertion sort: rows are short in practice
+                for (int k = start + 1; k < end; k++) {
+                    int j = idx[k];
+                    double d = val[k];
+                    int l = k - 1;
+                    while (l >= start && idx[l] > j) {
+                        idx[l + 1] = idx[l];
+                        val[l + 1] = val[l];
+                        l--;
+                    }
+                    idx[l + 1] = j;
+                    val[l + 1] = d;
+                }
+            } else {
+                // sort (column, position) pairs packed in longs
+                long[] keys = new long[len];
+                for (int k = 0; k < len; k++) keys[k] = ((long) idx[start + k] << 32) | k;
+                Arrays.sort(keys);
+                double[] tmp = Arrays.copyOfRange(val, start, end);
+                for (int k = 0; k < len; k++) {
+                    idx[start + k] = (int) (keys[k] >>> 32);
+                    val[start + k] = tmp[(int) keys[k]];
+                }
+            }
+        }
+    }
+}
@@ -39,7 +39,11 @@ package util;
  * @author <a href="mailto:mbowler@GargoyleSoftware.com">Mike Bowler</a>
  * @version $Revision: 480424 $
  * @since 2.0
+ * @deprecated the task is interrupted, which the algorithms do not check,
+ * and a thread is created for each task: use solve.TimedSearch (or a
+ * solve.Cancellation token with a deadline) instead.
  */
+@Deprecated
 public final class TimeoutController {
 
     /**
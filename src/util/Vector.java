@@ -4,7 +4,6 @@ import java.util.Arrays;
 import java.util.function.IntToDoubleFunction;
 import java.util.stream.DoubleStream;
 
-import static java.lang.Math.pow;
 import static java.lang.Math.sqrt;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.IntStream.range;
@@ -23,7 +22,7 @@ public class Vector {
      */
     public Vector(int n) {
         this.n = n;
-        this.tab = range(0, n).mapToDouble(i -> 0).toArray();
+        this.tab = new double[n];
     }
 
     /**
@@ -63,6 +62,14 @@ public class Vector {
         this.tab = x.clone();
     }
 
+    /*
+     * Build x on top of an existing array (no copy).
+     */
+    private Vector(int n, double[] tab) {
+        this.n = n;
+        this.tab = tab;
+    }
+
     public static Vector makeVector(int n, IntToDoubleFunction valueBuilder) {
         return new Vector(range(0, n).mapToDouble(valueBuilder).toArray());
     }
@@ -78,10 +85,6 @@ public class Vector {
 
     }
 
-    private DoubleStream doubleRange(int n) {
-        return range(0, n).asDoubleStream();
-    }
-
     /**
      * Get the sub-vector (x[start],...,x[end])
      */
@@ -112,6 +115,22 @@ public class Vector {
         tab[i] = d;
     }
 
+    /*
+     * Direct access to the underlying array (no copy),
+     * for the kernels of this package.
+     */
+    double[] array() {
+        return tab;
+    }
+
+    /*
+     * Same as array(), for the kernels that write into x: throws
+     * if x is a read-only view (before anything is written).
+     */
+    double[] writable() {
+        return tab;
+    }
+
     public DoubleStream stream() {
         return Arrays.stream(tab);
     }
@@ -122,16 +141,26 @@ public class Vector {
 
     /**
      * Set x to y.
+     * <p>
+     * If y has the same size as x, the values are copied
+     * in place (no allocation).
      */
     public void set(Vector y) {
-        tab = y.stream().toArray();
+        if (y.n == n) {
+            System.arraycopy(y.tab, 0, tab, 0, n);
+        } else {
+            tab = y.tab.clone();
+            n = tab.length;
+        }
     }
 
     /**
      * Return -x.
      */
     public Vector minus() {
-        return makeVector(n, i -> -1 * get(i));
+        double[] res = new double[n];
+        for (int i = 0; i < n; i++) res[i] = -tab[i];
+        return wrap(res);
     }
 
     /**
@@ -139,36 +168,181 @@ public class Vector {
      */
     public Vector add(Vector v) {
         assert (v.size() == n);
-        return makeVector(n, i -> get(i) + v.get(i));
+        double[] res = new double[n];
+        for (int i = 0; i < n; i++) res[i] = tab[i] + v.tab[i];
+        return wrap(res);
     }
 
     /**
      * Return x-v.
      */
     public Vector sub(Vector v) {
-        return add(v.minus());
+        return subInto(v, new Vector(n));
     }
 
     /**
      * Return lambda*x.
      */
     public Vector leftmul(double lambda) {
-        return makeVector(n, i -> lambda * get(i));
+        double[] res = new double[n];
+        for (int i = 0; i < n; i++) res[i] = lambda * tab[i];
+        return wrap(res);
     }
 
     /**
      * Return <x,v>.
      */
     public double scalar(Vector v) {
-        assert (n == v.size());
-        return doubleRange(n).reduce(0, (s, i) -> s + get((int) i) * v.get((int) i));
+        return dot(v);
     }
 
     /**
      * Return ||x||.
      */
     public double norm() {
-        return sqrt(stream().reduce(0, (s, i) -> s + pow(i, 2)));
+        return sqrt(norm2());
+    }
+
+    // ======================== in-place operations ========================
+    //
+    // The following methods do not allocate any object. They either
+    // modify x itself or write their result in a vector given by the caller.
+
+    /**
+     * x := x + a*v (the "axpy" operation).
+     *
+     * @return x (for chaining)
+     */
+    public Vector axpy(double a, Vector v) {
+        assert (v.size() == n);
+        Kernels.INSTANCE.axpy(a, v.tab, 0, tab, 0, n);
+        return this;
+    }
+
+    /**
+     * x := lambda*x.
+     *
+     * @return x (for chaining)
+     */
+    public Vector scaleInPlace(double lambda) {
+        for (int i = 0; i < n; i++) tab[i] *= lambda;
+        return this;
+    }
+
+    /**
+     * x := (a, ..., a) (contrary to scaleInPlace(0), NaN and
+     * infinite values are also erased by fill(0)).
+     *
+     * @return x (for chaining)
+     */
+    public Vector fill(double a) {
+        Arrays.fill(tab, 0, n, a);
+        return this;
+    }
+
+    /**
+     * dst := x - v.
+     * <p>
+     * dst may be x or v itself.
+     *
+     * @return dst
+     */
+    public Vector subInto(Vector v, Vector dst) {
+        assert (v.size() == n && dst.size() == n);
+        double[] y = v.tab;
+        double[] res = dst.writable();
+        for (int i = 0; i < n; i++) res[i] = tab[i] - y[i];
+        return dst;
+    }
+
+    /**
+     * Return <x,v> (same as scalar).
+     */
+    public double dot(Vector v) {
+        assert (n == v.size());
+        return Kernels.INSTANCE.dot(tab, 0, v.tab, 0, n);
+    }
+
+    /**
+     * Return ||x||^2.
+     */
+    public double norm2() {
+        return Kernels.INSTANCE.norm2(tab, 0, n);
+    }
+
+    /**
+     * Return ||x-v|| (same as x.sub(v).norm(), without allocation).
+     */
+    public double distance(Vector v) {
+        assert (n == v.size());
+        double[] y = v.tab;
+        double s = 0;
+        for (int i = 0; i < n; i++) {
+            double d = tab[i] - y[i];
+            s += d * d;
+        }
+        return sqrt(s);
+    }
+
+    /**
+     * Return a read-only view of x: a vector that shares the values
+     * of x (no copy, so it follows the changes of x) and whose
+     * own modifiers throw UnsupportedOperationException.
+     */
+    public Vector readOnly() {
+        return new ReadOnly(this);
+    }
+
+    /**
+     * Build a vector that uses the array x directly (no copy).
+     */
+    private static Vector wrap(double[] x) {
+        return new Vector(x.length, x);
+    }
+
+    /*
+     * See readOnly().
+     */
+    private static class ReadOnly extends Vector {
+
+        ReadOnly(Vector x) {
+            super(x.n, x.tab);
+        }
+
+        @Override
+        double[] writable() {
+            throw new UnsupportedOperationException("read-only vector");
+        }
+
+        @Override
+        public void set(int i, double d) {
+            throw new UnsupportedOperationException("read-only vector");
+        }
+
+        @Override
+        public void set(Vector y) {
+            throw new UnsupportedOperationException("read-only vector");
+        }
+
+        @Override
+        public Vector axpy(double a, Vector v) {
+            throw new UnsupportedOperationException("read-only vector");
+        }
+
+        @Override
+        public Vector scaleInPlace(double lambda) {
+            throw new UnsupportedOperationException("read-only vector");
+        }
+
+        @Override
+        public Vector fill(double a) {
+            throw new UnsupportedOperationException("read-only vector");
+        }
+
+        @Override
+        public Vector readOnly() {
+            return this;
+        }
     }
 
     /**
@@ -181,7 +355,7 @@ public class Vector {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Vector)) return false; // (a read-only view equals its vector)
         Vector vector = (Vector) o;
         return Arrays.equals(tab, vector.tab);
     }